@@ -0,0 +1,163 @@
+package com.dzhatdoev.config.snapshot;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.config.environment.Environment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Локальный (на диске + в памяти) снимок уже вычисленных конфигураций.
+ * Каждая комбинация application/profile/label хранится в отдельном json файле,
+ * поэтому после рестарта сервер может сразу отдавать настройки, даже если git репозиторий недоступен
+ */
+public class EnvironmentSnapshotStore {
+
+    private static final Log log = LogFactory.getLog(EnvironmentSnapshotStore.class);
+
+    private final Path dir; // папка со снимками
+    private final ObjectMapper mapper;
+
+    // ключ - application|profile|label|includeOrigin
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public EnvironmentSnapshotStore(Path dir, ObjectMapper mapper) {
+        this.dir = dir;
+        this.mapper = mapper;
+        loadFromDisk();
+    }
+
+    // снимок для ответа клиенту - запоминаем время запроса (по нему неиспользуемые снимки удаляются)
+    public Snapshot get(String key) {
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot != null) {
+            snapshot.lastRequested = System.currentTimeMillis();
+        }
+        return snapshot;
+    }
+
+    public Collection<Snapshot> all() {
+        return snapshots.values();
+    }
+
+    // сохраняет снимок, если он изменился; возвращает true, если содержимое действительно поменялось
+    public boolean put(Snapshot snapshot) {
+        byte[] json;
+        try {
+            json = mapper.writeValueAsBytes(snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Snapshot previous = snapshots.get(snapshot.key());
+        if (previous != null && Arrays.equals(previous.json, json)) {
+            return false; // ничего не поменялось - диск не трогаем
+        }
+
+        snapshot.json = json;
+        snapshot.lastRequested = previous != null ? previous.lastRequested : System.currentTimeMillis();
+        snapshots.put(snapshot.key(), snapshot);
+        writeToDisk(snapshot);
+        return true;
+    }
+
+    // удаляет снимок из памяти и с диска
+    public void remove(Snapshot snapshot) {
+        if (!snapshots.remove(snapshot.key(), snapshot)) {
+            return; // уже удален или заменен более новым
+        }
+        try {
+            Files.deleteIfExists(file(snapshot));
+        } catch (IOException e) {
+            log.warn("Cannot delete config snapshot " + snapshot.key() + ": " + e.getMessage());
+        }
+    }
+
+    private Path file(Snapshot snapshot) {
+        return dir.resolve(URLEncoder.encode(snapshot.key(), StandardCharsets.UTF_8) + ".json");
+    }
+
+    private void writeToDisk(Snapshot snapshot) {
+        try {
+            Files.createDirectories(dir);
+            Path target = file(snapshot);
+            // пишем во временный файл и переименовываем, чтобы при падении не остался "половинчатый" снимок
+            Path tmp = Files.createTempFile(dir, "snapshot", ".tmp");
+            Files.write(tmp, snapshot.json);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // снимок в памяти остается рабочим, просто не переживет рестарт
+            log.warn("Cannot write config snapshot " + snapshot.key() + ": " + e.getMessage());
+        }
+    }
+
+    private void loadFromDisk() {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path file : files) {
+                try {
+                    byte[] json = Files.readAllBytes(file);
+                    Snapshot snapshot = mapper.readValue(json, Snapshot.class);
+                    snapshot.json = json;
+                    snapshot.lastRequested = System.currentTimeMillis(); // после рестарта отсчет начинается заново
+                    snapshots.put(snapshot.key(), snapshot);
+                } catch (IOException e) {
+                    log.warn("Skipping broken config snapshot " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot read config snapshots from " + dir + ": " + e.getMessage());
+        }
+        log.info("Loaded " + snapshots.size() + " config snapshot(s) from " + dir);
+    }
+
+    public static String key(String application, String profile, String label, boolean includeOrigin) {
+        return application + "|" + profile + "|" + (label == null ? "" : label) + "|" + includeOrigin;
+    }
+
+    // один снимок: параметры запроса + полученный Environment
+    public static class Snapshot {
+
+        public String application;
+        public String profile;
+        public String label;
+        public boolean includeOrigin;
+        public Environment environment;
+
+        @JsonIgnore
+        byte[] json; // сериализованное представление (для быстрого сравнения изменений)
+
+        @JsonIgnore
+        volatile long lastRequested; // когда снимок последний раз запрашивали клиенты (мс)
+
+        public Snapshot() {
+        }
+
+        public Snapshot(String application, String profile, String label, boolean includeOrigin, Environment environment) {
+            this.application = application;
+            this.profile = profile;
+            this.label = label;
+            this.includeOrigin = includeOrigin;
+            this.environment = environment;
+        }
+
+        public String key() {
+            return EnvironmentSnapshotStore.key(application, profile, label, includeOrigin);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.dzhatdoev.config.snapshot;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+/**
+ * ETag для ответов config server.
+ * Клиент передает полученный ETag в заголовке If-None-Match и, если конфиг не поменялся, получает 304 без тела.
+ * Т.к. ответы берутся из снимка в памяти, вычислить хеш тела дешево
+ */
+@Configuration
+public class EtagConfig {
+
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> shallowEtagHeaderFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration = new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
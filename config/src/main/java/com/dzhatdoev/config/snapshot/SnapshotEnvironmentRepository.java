@@ -0,0 +1,107 @@
+package com.dzhatdoev.config.snapshot;
+
+import com.dzhatdoev.config.snapshot.EnvironmentSnapshotStore.Snapshot;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathLocator;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обертка над стандартным (git) репозиторием конфигураций.
+ * Запросы клиентов обслуживаются из локального снимка, а git опрашивается в фоне -
+ * поэтому медленный/недоступный git не тормозит старт клиентов.
+ * Только самый первый запрос по новой комбинации application/profile/label идет в git синхронно.
+ * Запоминаются только комбинации, для которых в git нашлись настройки, а снимки, которые никто не запрашивал
+ * дольше expireAfter, удаляются - иначе любые произвольные запросы копили бы файлы и фоновые обращения к git
+ */
+public class SnapshotEnvironmentRepository implements EnvironmentRepository, SearchPathLocator, DisposableBean {
+
+    private static final Log log = LogFactory.getLog(SnapshotEnvironmentRepository.class);
+
+    private final EnvironmentRepository delegate; // реальный репозиторий (git)
+    private final EnvironmentSnapshotStore store;
+    private final long expireAfter; // мс без запросов, после которых снимок удаляется
+    private final ScheduledExecutorService scheduler;
+
+    public SnapshotEnvironmentRepository(EnvironmentRepository delegate, EnvironmentSnapshotStore store,
+                                         Duration refreshInterval, Duration expireAfter) {
+        this.delegate = delegate;
+        this.store = store;
+        this.expireAfter = expireAfter.toMillis();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "config-snapshot-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // первое обновление сразу после старта (снимки с диска уже отдаются), дальше - по расписанию
+        long millis = refreshInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Environment findOne(String application, String profile, String label) {
+        return findOne(application, profile, label, false);
+    }
+
+    @Override
+    public Environment findOne(String application, String profile, String label, boolean includeOrigin) {
+        Snapshot snapshot = store.get(EnvironmentSnapshotStore.key(application, profile, label, includeOrigin));
+        if (snapshot != null) {
+            return copy(snapshot.environment);
+        }
+
+        // снимка еще нет - получаем из git и запоминаем (дальше он будет обновляться в фоне)
+        Environment environment = delegate.findOne(application, profile, label, includeOrigin);
+        if (environment.getPropertySources().isEmpty()) {
+            return environment; // для такой комбинации в git ничего нет - не запоминаем
+        }
+        store.put(new Snapshot(application, profile, label, includeOrigin, environment));
+        return copy(environment);
+    }
+
+    // копия, чтобы контроллер не изменил сам снимок (конструктор копирования не переносит property sources)
+    private static Environment copy(Environment environment) {
+        Environment copy = new Environment(environment);
+        copy.addAll(environment.getPropertySources());
+        return copy;
+    }
+
+    // перечитать из git все известные снимки (ошибки не критичны - клиенты продолжат получать последний снимок)
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        for (Snapshot snapshot : store.all()) {
+            if (now - snapshot.lastRequested > expireAfter) {
+                store.remove(snapshot);
+                log.info("Config snapshot expired: " + snapshot.key());
+                continue;
+            }
+            try {
+                Environment fresh = delegate.findOne(snapshot.application, snapshot.profile, snapshot.label, snapshot.includeOrigin);
+                if (store.put(new Snapshot(snapshot.application, snapshot.profile, snapshot.label, snapshot.includeOrigin, fresh))) {
+                    log.info("Config snapshot updated: " + snapshot.key());
+                }
+            } catch (Exception e) {
+                log.warn("Cannot refresh config snapshot " + snapshot.key() + ", serving the previous one: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Locations getLocations(String application, String profile, String label) {
+        return ((SearchPathLocator) delegate).getLocations(application, profile, label);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
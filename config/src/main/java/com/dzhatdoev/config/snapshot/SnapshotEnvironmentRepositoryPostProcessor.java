@@ -0,0 +1,43 @@
+package com.dzhatdoev.config.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.config.server.environment.SearchPathCompositeEnvironmentRepository;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Подменяет основной (@Primary) репозиторий конфигураций на обертку со снимками.
+ * Используем BeanPostProcessor, т.к. config server сам собирает composite репозиторий из всех бинов EnvironmentRepository -
+ * если объявить обертку обычным бином, она попадет внутрь composite и будет вызывать сама себя
+ */
+@Component
+public class SnapshotEnvironmentRepositoryPostProcessor implements BeanPostProcessor {
+
+    private final boolean enabled;
+    private final Path dir;
+    private final Duration refreshInterval;
+    private final Duration expireAfter;
+
+    public SnapshotEnvironmentRepositoryPostProcessor(@Value("${config.snapshot.enabled:true}") boolean enabled,
+                                                      @Value("${config.snapshot.dir}") String dir,
+                                                      @Value("${config.snapshot.refresh-interval:30s}") Duration refreshInterval,
+                                                      @Value("${config.snapshot.expire-after:7d}") Duration expireAfter) {
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.refreshInterval = refreshInterval;
+        this.expireAfter = expireAfter;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof SearchPathCompositeEnvironmentRepository repository) {
+            EnvironmentSnapshotStore store = new EnvironmentSnapshotStore(dir, new ObjectMapper());
+            return new SnapshotEnvironmentRepository(repository, store, refreshInterval, expireAfter);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,144 @@
+package com.dzhatdoev.config;
+
+import com.dzhatdoev.config.snapshot.EnvironmentSnapshotStore;
+import com.dzhatdoev.config.snapshot.SnapshotEnvironmentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// вместо удаленного github используется локальный git репозиторий во временной папке
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SnapshotEnvironmentRepositoryTests {
+
+    static Path gitDir;
+    static Path snapshotDir;
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private EnvironmentRepository repository; // основной (@Primary) репозиторий - уже обернутый снимками
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws Exception {
+        gitDir = Files.createTempDirectory("config-git");
+        snapshotDir = Files.createTempDirectory("config-snapshot");
+
+        try (Git git = Git.init().setDirectory(gitDir.toFile()).setInitialBranch("main").call()) {
+            commit(git, "todo.properties", "test.value=first");
+        }
+
+        registry.add("spring.cloud.config.server.git.uri", () -> gitDir.toUri().toString());
+        registry.add("spring.cloud.config.server.git.basedir", () -> gitDir.resolveSibling(gitDir.getFileName() + "-clone").toString());
+        registry.add("spring.cloud.config.server.git.username", () -> "");
+        registry.add("spring.cloud.config.server.git.password", () -> "");
+        registry.add("config.snapshot.dir", snapshotDir::toString);
+        registry.add("config.snapshot.refresh-interval", () -> "1h"); // обновляем вручную в тесте
+    }
+
+    @Test
+    void servesEtagAndNotModified() {
+        ResponseEntity<String> first = rest.getForEntity("/todo/default", String.class);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertTrue(first.getBody().contains("test.value"));
+
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<String> second = rest.exchange("/todo/default", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+    }
+
+    @Test
+    void refreshPicksUpNewCommitsAndSnapshotSurvivesWithoutGit() throws Exception {
+        assertEquals("first", value(repository.findOne("todo", "default", null)));
+
+        try (Git git = Git.open(gitDir.toFile())) {
+            commit(git, "todo.properties", "test.value=second");
+        }
+        ((SnapshotEnvironmentRepository) repository).refresh();
+        assertEquals("second", value(repository.findOne("todo", "default", null)));
+
+        // новый экземпляр поверх "упавшего" git должен подняться из снимка на диске
+        EnvironmentRepository brokenGit = (application, profile, label) -> {
+            throw new IllegalStateException("git is down");
+        };
+        SnapshotEnvironmentRepository offline = new SnapshotEnvironmentRepository(brokenGit,
+                new EnvironmentSnapshotStore(snapshotDir, new ObjectMapper()), Duration.ofHours(1), Duration.ofDays(7));
+        try {
+            assertEquals("second", value(offline.findOne("todo", "default", null, false)));
+        } finally {
+            offline.destroy();
+        }
+    }
+
+    @Test
+    void unknownApplicationIsNotSnapshotted() throws Exception {
+        assertTrue(repository.findOne("no-such-app", "default", null).getPropertySources().isEmpty());
+
+        try (var files = Files.list(snapshotDir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().startsWith("no-such-app")));
+        }
+    }
+
+    @Test
+    void snapshotNotRequestedForTooLongIsRemoved() throws Exception {
+        Path dir = Files.createTempDirectory("config-snapshot-expire");
+        AtomicInteger gitCalls = new AtomicInteger();
+        EnvironmentRepository git = (application, profile, label) -> {
+            gitCalls.incrementAndGet();
+            Environment environment = new Environment(application, profile);
+            environment.add(new PropertySource("git", Map.of("test.value", "first")));
+            return environment;
+        };
+        SnapshotEnvironmentRepository snapshots = new SnapshotEnvironmentRepository(git,
+                new EnvironmentSnapshotStore(dir, new ObjectMapper()), Duration.ofHours(1), Duration.ofMillis(50));
+        try {
+            snapshots.findOne("todo", "default", null, false);
+            Thread.sleep(100);
+            int calls = gitCalls.get();
+
+            snapshots.refresh();
+            assertEquals(calls, gitCalls.get()); // просроченный снимок не перечитывается из git
+            try (var files = Files.list(dir)) {
+                assertEquals(0, files.count());
+            }
+        } finally {
+            snapshots.destroy();
+        }
+    }
+
+    private static String value(Environment environment) {
+        return String.valueOf(environment.getPropertySources().get(0).getSource().get("test.value"));
+    }
+
+    private static void commit(Git git, String file, String content) throws Exception {
+        Files.writeString(gitDir.resolve(file), content);
+        git.add().addFilepattern(file).call();
+        git.commit().setMessage("update " + file).setSign(false).call();
+    }
+}
@@ -48,6 +48,12 @@ public class Priority implements Serializable {
     @Column(name = "user_id")
     private Long userId;
 
+    // номер версии для оптимистической блокировки - увеличивается при каждом изменении,
+    // изменение на основе устаревшей версии не выполнится (клиент получит 409)
+    @Version
+    @Column
+    private Long version;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -7,6 +7,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.PartitionKey;
+import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.cache.annotation.Cacheable;
 
 import java.io.Serializable;
@@ -60,9 +62,23 @@ public class Task implements Serializable {
 //    @JoinColumn(name = "user_id", referencedColumnName = "id") // по каким полям связывать (foreign key)
 //    private User user; // для какого пользователя задача
 
+    // таблица может быть секционирована по user_id (db/task-partitioning.sql) - Hibernate добавляет user_id в WHERE
+    // при update/delete задачи, чтобы Postgres обращался только к одной секции
+    @PartitionKey
     @Column(name = "user_id")
     private Long userId;
 
+    // время последнего изменения (Hibernate заполняет при каждом insert/update) - по нему клиенты получают только изменения (/task/changes)
+    @UpdateTimestamp
+    @Column(name = "modified_at")
+    private Date modifiedAt;
+
+    // номер версии для оптимистической блокировки - увеличивается при каждом изменении,
+    // изменение на основе устаревшей версии не выполнится (клиент получит 409)
+    @Version
+    @Column
+    private Long version;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
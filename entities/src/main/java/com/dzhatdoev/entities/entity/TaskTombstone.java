@@ -0,0 +1,47 @@
+package com.dzhatdoev.entities.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+удаленные задачи - чтобы клиенты при синхронизации (/task/changes) узнали об удалении.
+Старые записи периодически удаляются, клиенту с более старой отметкой синхронизации отдается полный список задач
+ */
+
+@Entity
+@Table(name = "task_tombstone", schema = "todo", catalog = "postgres")
+@NoArgsConstructor
+@AllArgsConstructor
+@Setter
+@Getter
+public class TaskTombstone {
+
+    @Id
+    @Column(name = "task_id")
+    private Long taskId; // id удаленной задачи (повторно не используется, т.к. генерируется в БД)
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "deleted_at")
+    private Date deletedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskTombstone that = (TaskTombstone) o;
+        return taskId.equals(that.taskId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(taskId);
+    }
+}
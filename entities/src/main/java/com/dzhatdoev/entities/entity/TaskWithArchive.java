@@ -0,0 +1,78 @@
+package com.dzhatdoev.entities.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+задачи пользователя вместе с архивом (представление todo.task_with_archive = todo.task + todo.task_archive).
+Только для чтения: поиск с includeArchived и синхронизация (/task/changes) - старые выполненные задачи переносятся в архив,
+чтобы обычный поиск работал только с активными задачами
+ */
+
+@Entity
+@Immutable
+@Table(name = "task_with_archive", schema = "todo", catalog = "postgres")
+@NoArgsConstructor
+@Setter
+@Getter
+public class TaskWithArchive {
+
+    // те же поля, что и у Task - json ответа выглядит так же
+    @Id
+    @Column
+    private Long id;
+
+    @Column
+    private String title;
+
+    @Convert(converter = org.hibernate.type.NumericBooleanConverter.class)
+    @Column
+    private Boolean completed;
+
+    @Column(name = "task_date")
+    private Date taskDate;
+
+    @ManyToOne
+    @JoinColumn(name = "priority_id", referencedColumnName = "id")
+    private Priority priority;
+
+    @ManyToOne
+    @JoinColumn(name = "category_id", referencedColumnName = "id")
+    private Category category;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "modified_at")
+    private Date modifiedAt;
+
+    @Column
+    private Long version;
+
+    @Column
+    private Boolean archived; // true - задача из архива (изменение или удаление сначала возвращает ее в todo.task)
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskWithArchive task = (TaskWithArchive) o;
+        return id.equals(task.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
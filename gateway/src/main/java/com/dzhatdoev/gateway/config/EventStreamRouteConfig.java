@@ -0,0 +1,28 @@
+package com.dzhatdoev.gateway.config;
+
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Маршрут для SSE потока todo (/todo/events?userId=...).
+ * Отдельно от остальных маршрутов (они в конфиге на config server), т.к. соединение держится долго -
+ * для него отключается response-timeout, иначе gateway обрывал бы поток
+ */
+@Configuration
+public class EventStreamRouteConfig {
+
+    @Bean
+    public RouteLocator todoEventsRoute(RouteLocatorBuilder builder) {
+        return builder.routes()
+                .route("todo-events", r -> r.order(Ordered.HIGHEST_PRECEDENCE)
+                        .path("/todo/events/**", "/todo/events")
+                        .filters(f -> f.stripPrefix(1))
+                        .metadata(RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR, -1)
+                        .uri("lb://todo"))
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.dzhatdoev.gateway.config;
+
+import com.dzhatdoev.gateway.trace.LoadBalancerTraceFilter;
+import com.dzhatdoev.gateway.trace.TraceGlobalFilter;
+import com.dzhatdoev.utils.trace.SpanStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Трассировка запросов через gateway (span хранятся в памяти, SpanStore из utils - /actuator/traces)
+ */
+@Configuration
+@ConditionalOnProperty(name = "trace.enabled", matchIfMissing = true)
+public class TraceFilterConfig {
+
+    @Value("${spring.application.name}")
+    private String service;
+
+    @Bean
+    public TraceGlobalFilter traceGlobalFilter(SpanStore store) {
+        return new TraceGlobalFilter(store, service);
+    }
+
+    @Bean
+    public LoadBalancerTraceFilter loadBalancerTraceStart(SpanStore store) {
+        return new LoadBalancerTraceFilter(store, service, true);
+    }
+
+    @Bean
+    public LoadBalancerTraceFilter loadBalancerTraceEnd(SpanStore store) {
+        return new LoadBalancerTraceFilter(store, service, false);
+    }
+}
@@ -0,0 +1,62 @@
+package com.dzhatdoev.gateway.trace;
+
+import com.dzhatdoev.utils.trace.Span;
+import com.dzhatdoev.utils.trace.SpanStore;
+import com.dzhatdoev.utils.trace.TraceContext;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Map;
+
+
+/**
+ * Span выбора экземпляра сервиса для lb:// маршрутов (список экземпляров из Eureka + балансировка):
+ * фильтр ставится дважды - перед ReactiveLoadBalancerClientFilter (start = true, запоминает время)
+ * и сразу после него (start = false, сохраняет span с выбранным адресом)
+ */
+public class LoadBalancerTraceFilter implements GlobalFilter, Ordered {
+
+    private static final String START_ATTR = LoadBalancerTraceFilter.class.getName() + ".start";
+
+    private final SpanStore store;
+    private final String service;
+    private final boolean start;
+
+    public LoadBalancerTraceFilter(SpanStore store, String service, boolean start) {
+        this.store = store;
+        this.service = service;
+        this.start = start;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        TraceContext context = exchange.getAttribute(TraceGlobalFilter.CONTEXT_ATTR);
+        if (context != null) {
+            if (start) {
+                URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+                if (url != null && "lb".equals(url.getScheme())) { // остальные маршруты идут напрямую по адресу
+                    exchange.getAttributes().put(START_ATTR, new long[]{System.currentTimeMillis(), System.nanoTime()});
+                }
+            } else {
+                long[] started = exchange.getAttribute(START_ATTR);
+                URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+                if (started != null) {
+                    store.add(new Span(context.getTraceId(), TraceContext.newSpanId(), context.getSpanId(), service, "loadbalancer",
+                            started[0], (System.nanoTime() - started[1]) / 1000, url == null ? null : Map.of("url", url.toString()), null));
+                }
+            }
+        }
+        return chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + (start ? -1 : 1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.dzhatdoev.gateway.trace;
+
+import com.dzhatdoev.utils.trace.Span;
+import com.dzhatdoev.utils.trace.SpanStore;
+import com.dzhatdoev.utils.trace.TraceContext;
+import com.dzhatdoev.utils.trace.Tracer;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Корневой span запроса в gateway (от получения запроса до конца ответа сервиса).
+ * В запрос к сервису добавляется заголовок traceparent - span сервиса (todo) становятся потомками этого span.
+ * Фильтр первый в цепочке, поэтому span включает и выбор экземпляра в Eureka (LoadBalancerTraceFilter)
+ */
+public class TraceGlobalFilter implements GlobalFilter, Ordered {
+
+    public static final String CONTEXT_ATTR = TraceGlobalFilter.class.getName() + ".context";
+
+    private final SpanStore store;
+    private final String service;
+
+    public TraceGlobalFilter(SpanStore store, String service) {
+        this.store = store;
+        this.service = service;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getPath().value().contains("/events")) { // SSE соединение длится часами
+            return chain.filter(exchange);
+        }
+
+        TraceContext parent = TraceContext.parse(request.getHeaders().getFirst(TraceContext.HEADER));
+        TraceContext context = new TraceContext(parent == null ? TraceContext.newTraceId() : parent.getTraceId(), TraceContext.newSpanId());
+
+        ServerWebExchange traced = exchange.mutate()
+                .request(request.mutate().headers(headers -> headers.set(TraceContext.HEADER, context.toHeader())).build())
+                .build();
+        traced.getAttributes().put(CONTEXT_ATTR, context);
+        traced.getResponse().beforeCommit(() -> { // set перед отправкой - заголовок из ответа todo не дублируется
+            traced.getResponse().getHeaders().set(TraceContext.TRACE_ID_HEADER, context.getTraceId());
+            return Mono.empty();
+        });
+
+        String name = request.getMethod() + " " + request.getPath().value();
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        return chain.filter(traced).doFinally(signal -> {
+            Map<String, String> tags = new LinkedHashMap<>();
+            tags.put(Tracer.ROOT_TAG, "true");
+            Route route = traced.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            if (route != null) {
+                tags.put("route", route.getId());
+            }
+            URI url = traced.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+            if (url != null) {
+                tags.put("url", url.toString());
+            }
+            if (traced.getResponse().getStatusCode() != null) {
+                tags.put("status", String.valueOf(traced.getResponse().getStatusCode().value()));
+            }
+            store.add(new Span(context.getTraceId(), context.getSpanId(), parent == null ? null : parent.getSpanId(), service, name,
+                    start, (System.nanoTime() - startNanos) / 1000, tags, signal.name().equals("ON_COMPLETE") ? null : signal.name()));
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
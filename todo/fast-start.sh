@@ -0,0 +1,92 @@
+#!/usr/bin/env bash
+# Быстрый старт todo: Spring AOT + CDS архив классов.
+#
+#   ./fast-start.sh build  - собрать jar с AOT (mvn -Paot package) и распаковать его в target/exploded
+#   ./fast-start.sh train  - тренировочный запуск, создает CDS архив target/todo.jsa (нужны БД и config server/снимок конфига)
+#   ./fast-start.sh run    - запустить сервис в режиме AOT + CDS
+#   ./fast-start.sh bench  - сравнить время до первого успешного /task/search: обычный jar vs AOT + CDS
+#
+# Переменные: PORT (порт todo, по умолчанию 8080), USER_ID (для тестового /task/search), RUNS (кол-во запусков в bench),
+#             APP_ARGS (дополнительные аргументы сервиса, например --spring.datasource.url=...)
+#
+# CDS архивирует только классы, загруженные встроенным загрузчиком из обычного classpath. Из jar внутри jar (BOOT-INF/lib)
+# классы загружает LaunchedURLClassLoader - их в архиве не было бы. Поэтому быстрый режим запускается не через java -jar,
+# а из распакованного jar: классы сервиса (BOOT-INF/classes, собранные в application.jar - каталоги с классами CDS
+# в classpath не допускает) + все jar из BOOT-INF/lib в порядке BOOT-INF/classpath.idx.
+# Classpath при train и run должен совпадать (JVM проверяет его и размер/время изменения jar) - после build нужен новый train
+
+set -euo pipefail
+cd "$(dirname "$0")"
+
+JAR=$(ls target/todo-*.jar | grep -v original | head -1 || true)
+EXPLODED=target/exploded
+JSA=target/todo.jsa
+PORT=${PORT:-8080}
+USER_ID=${USER_ID:-1}
+RUNS=${RUNS:-5}
+APP_ARGS=${APP_ARGS:-}
+
+AOT_OPTS="-Dspring.aot.enabled=true -Dspring.cloud.refresh.enabled=false -Deureka.client.refresh.enable=false"
+FAST_OPTS="$AOT_OPTS -XX:SharedArchiveFile=$JSA"
+
+classpath() {
+  local cp=$EXPLODED/application.jar
+  # строки classpath.idx: - "BOOT-INF/lib/xxx.jar"
+  while read -r _ lib; do
+    cp="$cp:$EXPLODED/${lib//\"/}"
+  done < $EXPLODED/BOOT-INF/classpath.idx
+  echo "$cp"
+}
+
+main_class() {
+  sed -n 's/^Start-Class: *//p' $EXPLODED/META-INF/MANIFEST.MF | tr -d '\r'
+}
+
+search() {
+  curl -s -o /dev/null -w '%{http_code}' -X POST "http://localhost:$PORT/task/search" \
+    -H 'Content-Type: application/json' \
+    -d "{\"userId\":$USER_ID,\"pageNumber\":0,\"pageSize\":10,\"sortColumn\":\"title\",\"sortDirection\":\"asc\"}" || true
+}
+
+# время (мс) от запуска JVM до первого ответа 200 на /task/search; аргументы - команда запуска java без APP_ARGS
+measure() {
+  local start pid
+  start=$(date +%s%N)
+  "$@" --server.port=$PORT $APP_ARGS > target/bench.log 2>&1 &
+  pid=$!
+  until [ "$(search)" = "200" ]; do
+    if ! kill -0 $pid 2>/dev/null; then echo "todo did not start, see target/bench.log" >&2; exit 1; fi
+    sleep 0.05
+  done
+  echo $(( ($(date +%s%N) - start) / 1000000 ))
+  kill $pid && wait $pid 2>/dev/null || true
+}
+
+case "${1:-}" in
+  build)
+    # entities и utils должны быть уже установлены в локальный репозиторий (mvn install в корне проекта)
+    mvn -Paot -DskipTests package
+    JAR=$(ls target/todo-*.jar | grep -v original | head -1)
+    rm -rf $EXPLODED $JSA
+    mkdir -p $EXPLODED
+    (cd $EXPLODED && jar -xf "../../$JAR")
+    jar -cf $EXPLODED/application.jar -C $EXPLODED/BOOT-INF/classes .
+    ;;
+  train)
+    rm -f $JSA
+    java -XX:ArchiveClassesAtExit=$JSA $AOT_OPTS -Dtodo.cds.training=true \
+      -cp "$(classpath)" "$(main_class)" --server.port=$PORT $APP_ARGS
+    ;;
+  run)
+    exec java $FAST_OPTS -cp "$(classpath)" "$(main_class)" --server.port=$PORT $APP_ARGS
+    ;;
+  bench)
+    for i in $(seq "$RUNS"); do
+      echo "run $i: default jar $(measure java -jar "$JAR") ms, AOT + CDS $(measure java $FAST_OPTS -cp "$(classpath)" "$(main_class)") ms"
+    done
+    ;;
+  *)
+    sed -n '2,10p' "$0"
+    exit 1
+    ;;
+esac
@@ -2,12 +2,16 @@ package com.dzhatdoev.todo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@ComponentScan(basePackages = {"com.dzhatdoev.entities"})
+@ComponentScan(basePackages = {"com.dzhatdoev.entities", "com.dzhatdoev.todo"})
 @EnableJpaRepositories(basePackages = {"com.dzhatdoev.todo"})
+@EnableScheduling
+@EnableCaching
 public class TodoApplication {
     public static void main(String[] args) {
         SpringApplication.run(TodoApplication.class, args);
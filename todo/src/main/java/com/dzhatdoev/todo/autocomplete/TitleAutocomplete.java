@@ -0,0 +1,177 @@
+package com.dzhatdoev.todo.autocomplete;
+
+import com.dzhatdoev.todo.events.TodoEvent;
+import com.dzhatdoev.todo.repo.CategoryRepository;
+import com.dzhatdoev.todo.repo.PriorityRepository;
+import com.dzhatdoev.todo.repo.TaskRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Автодополнение названий задач, категорий и приоритетов пользователя без запросов like '%x%' к БД.
+ * Индекс пользователя (TitleIndex) загружается из БД при первом обращении и хранится в памяти;
+ * при нехватке todo.autocomplete.max-memory вытесняются индексы, к которым давно не обращались.
+ * Изменения (TodoEvents, в т.ч. с других экземпляров) только отмечают id измененных объектов -
+ * их названия перечитываются одним запросом при следующем обращении к индексу.
+ * Изменения, пришедшие, пока индекс загружается, не теряются: они отмечаются в Loading, набор которого становится
+ * набором измененных id нового индекса, а индекс, во время загрузки которого пришло изменение без id, не сохраняется
+ */
+@Component
+public class TitleAutocomplete {
+
+    public enum Kind {TASK, CATEGORY, PRIORITY}
+
+    private final TaskRepository taskRepository;
+    private final CategoryRepository categoryRepository;
+    private final PriorityRepository priorityRepository;
+
+    private final Cache<Key, UserTitles> indexes;
+    private final Map<Key, Loading> loading = new ConcurrentHashMap<>(); // индексы, которые сейчас загружаются из БД
+
+    public TitleAutocomplete(TaskRepository taskRepository, CategoryRepository categoryRepository, PriorityRepository priorityRepository,
+                             @Value("${todo.autocomplete.max-memory:64MB}") DataSize maxMemory) {
+        this.taskRepository = taskRepository;
+        this.categoryRepository = categoryRepository;
+        this.priorityRepository = priorityRepository;
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxMemory.toBytes())
+                .weigher((Key key, UserTitles titles) -> titles.index.weight())
+                .build();
+    }
+
+    public List<TitleMatch> find(Long userId, Kind kind, String prefix, int limit) {
+        Key key = new Key(userId, kind);
+        UserTitles titles = indexes.getIfPresent(key);
+        if (titles == null) {
+            titles = load(key);
+        }
+
+        if (!titles.changed.isEmpty() && titles.refresh(k -> load(key, k))) {
+            indexes.put(key, titles); // пересчет размера индекса
+        }
+        return titles.index.find(prefix, limit);
+    }
+
+    public void onEvent(TodoEvent event) {
+        Kind kind = switch (event.getType()) {
+            case TASK -> Kind.TASK;
+            case CATEGORY -> Kind.CATEGORY;
+            case PRIORITY -> Kind.PRIORITY;
+            case STAT -> null;
+        };
+        if (kind == null) {
+            return;
+        }
+        if (event.getUserId() == null || event.getId() == null) { // неизвестно, что изменилось - индекс будет загружен заново
+            // сначала загружаемые индексы: если загрузка завершится после removeIf, индекс все равно не сохранится
+            loading.forEach((key, pending) -> {
+                if (key.kind == kind && (event.getUserId() == null || key.userId.equals(event.getUserId()))) {
+                    pending.stale = true;
+                }
+            });
+            indexes.asMap().keySet().removeIf(key -> key.kind == kind && (event.getUserId() == null || key.userId.equals(event.getUserId())));
+            return;
+        }
+
+        Key key = new Key(event.getUserId(), kind);
+        Loading pending = loading.get(key);
+        if (pending != null) { // индекс загружается - id попадет в changed нового индекса
+            pending.changed.add(event.getId());
+        }
+        UserTitles titles = indexes.getIfPresent(key);
+        if (titles != null) { // индекса нет - изменение учтется при загрузке
+            titles.changed.add(event.getId());
+        }
+    }
+
+    // события могли быть потеряны - все индексы загружаются заново
+    public void invalidateAll() {
+        indexes.invalidateAll();
+    }
+
+    // Loading регистрируется до чтения из БД и удаляется после сохранения индекса в кеше, поэтому событие
+    // застает либо Loading, либо сохраненный индекс, либо еще не начатое чтение (которое уже увидит изменение)
+    private UserTitles load(Key key) {
+        Loading pending = new Loading();
+        UserTitles titles = null;
+        try {
+            titles = indexes.get(key, k -> {
+                loading.put(k, pending);
+                return new UserTitles(TitleIndex.of(toMap(load(k, null))), pending.changed);
+            });
+        } finally {
+            // false - индекс загрузил другой поток
+            if (loading.remove(key, pending) && pending.stale && titles != null) {
+                indexes.asMap().remove(key, titles); // мог быть прочитан до изменения - при следующем обращении загрузится заново
+            }
+        }
+        return titles;
+    }
+
+    // ids == null - все объекты пользователя
+    private List<Object[]> load(Key key, List<Long> ids) {
+        return switch (key.kind) {
+            case TASK -> ids == null ? taskRepository.findTitles(key.userId) : taskRepository.findTitles(key.userId, ids);
+            case CATEGORY -> ids == null ? categoryRepository.findTitles(key.userId) : categoryRepository.findTitles(key.userId, ids);
+            case PRIORITY -> ids == null ? priorityRepository.findTitles(key.userId) : priorityRepository.findTitles(key.userId, ids);
+        };
+    }
+
+    // строки (id, title) -> id -> title; объекты без названия не индексируются
+    private static Map<Long, String> toMap(List<Object[]> rows) {
+        Map<Long, String> result = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                result.put((Long) row[0], (String) row[1]);
+            }
+        }
+        return result;
+    }
+
+    private record Key(Long userId, Kind kind) {
+    }
+
+    // изменения, пришедшие во время загрузки индекса
+    private static class Loading {
+
+        private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+        private volatile boolean stale; // изменение без id - неизвестно, что перечитать
+    }
+
+    // индекс пользователя и id объектов, измененных после его построения
+    private static class UserTitles {
+
+        private volatile TitleIndex index;
+        private final Set<Long> changed;
+
+        UserTitles(TitleIndex index, Set<Long> changed) {
+            this.index = index;
+            this.changed = changed;
+        }
+
+        // перечитать измененные объекты (ненайденные - удалены); false - уже обновил другой поток
+        synchronized boolean refresh(Function<List<Long>, List<Object[]>> loader) {
+            List<Long> ids = new ArrayList<>(changed);
+            if (ids.isEmpty()) {
+                return false;
+            }
+            changed.removeAll(ids);
+
+            Map<Long, String> found = toMap(loader.apply(ids));
+            List<Long> removed = ids.stream().filter(id -> !found.containsKey(id)).toList();
+            index = index.with(found, removed);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.dzhatdoev.todo.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый индекс названий для поиска по началу слова: для каждого слова названия хранится ключ
+ * (текст названия с начала этого слова в нижнем регистре), ключи отсортированы - поиск по префиксу это
+ * двоичный поиск первого подходящего ключа и просмотр следующих, пока они начинаются с префикса.
+ * Изменение создает новый индекс (читатели без блокировок всегда видят целый индекс)
+ */
+public class TitleIndex {
+
+    private static final TitleIndex EMPTY = new TitleIndex(Map.of());
+
+    private final Map<Long, String> titles; // id -> название
+
+    // отсортированные ключи и id объекта для каждого ключа (параллельные массивы)
+    private final String[] keys;
+    private final long[] ids;
+
+    private TitleIndex(Map<Long, String> titles) {
+        this.titles = titles;
+
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        titles.forEach((id, title) -> {
+            String lower = title.toLowerCase(Locale.ROOT);
+            for (int i = 0; i < lower.length(); i++) {
+                if (Character.isLetterOrDigit(lower.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(lower.charAt(i - 1)))) {
+                    entries.add(Map.entry(lower.substring(i), id)); // начало очередного слова
+                }
+            }
+        });
+        entries.sort(Map.Entry.comparingByKey());
+
+        keys = new String[entries.size()];
+        ids = new long[entries.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = entries.get(i).getKey();
+            ids[i] = entries.get(i).getValue();
+        }
+    }
+
+    public static TitleIndex of(Map<Long, String> titles) {
+        return titles.isEmpty() ? EMPTY : new TitleIndex(Map.copyOf(titles));
+    }
+
+    // новый индекс с измененными/добавленными (changed) и без удаленных (removed) объектов
+    public TitleIndex with(Map<Long, String> changed, Collection<Long> removed) {
+        Map<Long, String> result = new HashMap<>(titles);
+        result.keySet().removeAll(removed);
+        result.putAll(changed);
+        return of(result);
+    }
+
+    // объекты, у которых одно из слов названия начинается с prefix (без учета регистра), в порядке ключей
+    public List<TitleMatch> find(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+
+        int from = Arrays.binarySearch(keys, key);
+        if (from < 0) {
+            from = -from - 1; // точного совпадения нет - позиция, с которой начинаются большие ключи
+        }
+        while (from > 0 && keys[from - 1].equals(key)) { // binarySearch находит любой из равных ключей, нужен первый
+            from--;
+        }
+
+        Map<Long, TitleMatch> result = new LinkedHashMap<>(); // одно название может подойти по нескольким словам
+        for (int i = from; i < keys.length && result.size() < limit && keys[i].startsWith(key); i++) {
+            result.computeIfAbsent(ids[i], id -> new TitleMatch(id, titles.get(id)));
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    public Set<Long> ids() {
+        return titles.keySet();
+    }
+
+    // примерный объем памяти в байтах (для ограничения размера кеша индексов)
+    public int weight() {
+        long bytes = 64;
+        for (String title : titles.values()) {
+            bytes += 80 + 2L * title.length(); // запись в Map + строка
+        }
+        for (String key : keys) {
+            bytes += 56 + 2L * key.length() + 8; // ключ + id
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,14 @@
+package com.dzhatdoev.todo.autocomplete;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+// подсказка автодополнения: id и полное название объекта
+public class TitleMatch {
+
+    private Long id;
+    private String title;
+
+}
@@ -0,0 +1,32 @@
+package com.dzhatdoev.todo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Бинарные форматы для всех контроллеров: CBOR (application/cbor) и Smile (application/x-jackson-smile).
+ * Клиент выбирает формат заголовками Accept (ответ) и Content-Type (тело запроса).
+ * Конвертеры добавляются в конец списка, поэтому без явного Accept по-прежнему отдается JSON.
+ * Используются те же настройки Jackson, что и для JSON, - сущности сериализуются так же, меняется только кодировка
+ */
+@Configuration
+public class BinaryFormatsConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder builder; // настроенный Spring Boot билдер (модули, spring.jackson.*)
+
+    public BinaryFormatsConfig(Jackson2ObjectMapperBuilder builder) {
+        this.builder = builder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2CborHttpMessageConverter(builder.cbor().build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(builder.smile().build()));
+    }
+}
@@ -0,0 +1,20 @@
+package com.dzhatdoev.todo.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Блокировка миграций (чтобы их не выполняли одновременно несколько экземпляров) - сессионная, а не в транзакции:
+ * иначе соединение с блокировкой остается в открытой транзакции и create index concurrently ждет ее окончания бесконечно
+ */
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayConfigurationCustomizer sessionLevelMigrationLock() {
+        return configuration -> configuration.configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+    }
+}
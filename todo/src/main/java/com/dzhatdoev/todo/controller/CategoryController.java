@@ -1,15 +1,26 @@
 package com.dzhatdoev.todo.controller;
 
 import com.dzhatdoev.todo.service.CategoryService;
+import com.dzhatdoev.todo.version.UserDataVersions;
+import com.dzhatdoev.todo.autocomplete.TitleAutocomplete;
+import com.dzhatdoev.todo.autocomplete.TitleMatch;
+import com.dzhatdoev.todo.search.AutocompleteValues;
 import com.dzhatdoev.entities.entity.Category;
 import com.dzhatdoev.todo.search.CategorySearchValues;
+import com.dzhatdoev.todo.search.IdsValues;
+import com.dzhatdoev.todo.search.MultiGetResult;
+import com.dzhatdoev.todo.search.PatchValues;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 
 
 /**
@@ -28,8 +39,13 @@ public class CategoryController {
 
     // используем автоматическое внедрение экземпляра класса через конструктор
     // не используем @Autowired ля переменной класса, т.к. "Field injection is not recommended "
-    public CategoryController(CategoryService categoryService) {
+    private final UserDataVersions versions;
+    private final TitleAutocomplete autocomplete;
+
+    public CategoryController(CategoryService categoryService, UserDataVersions versions, TitleAutocomplete autocomplete) {
         this.categoryService = categoryService;
+        this.versions = versions;
+        this.autocomplete = autocomplete;
     }
 
     @GetMapping("/test")
@@ -37,9 +53,10 @@ public class CategoryController {
         return ResponseEntity.ok("hello");
     }
 
+    // список меняется редко - отдаем ETag, и если у клиента актуальная версия (If-None-Match), отвечаем 304 без запроса в БД
     @PostMapping("/all")
-    public List<Category> findAll(@RequestBody Long id) {
-        return categoryService.findAll(id);
+    public ResponseEntity<List<Category>> findAll(@RequestBody Long id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return versions.conditional(id, UserDataVersions.Collection.CATEGORIES, ifNoneMatch, () -> categoryService.findAll(id));
     }
 
 
@@ -75,12 +92,53 @@ public class CategoryController {
         }
 
         // save работает как на добавление, так и на обновление
-        categoryService.update(category);
+        try {
+            categoryService.update(category);
+        } catch (OptimisticLockingFailureException e) { // объект уже изменил кто-то другой (передана устаревшая version)
+            return new ResponseEntity("outdated version: reload the object", HttpStatus.CONFLICT);
+        }
 
         return new ResponseEntity(HttpStatus.OK); // просто отправляем статус 200 (операция прошла успешно)
     }
 
 
+    // частичное изменение: передаются только id, userId, version и изменяемые поля
+    // выполняется один UPDATE с проверкой версии, без предварительного чтения объекта
+    @PatchMapping("/patch")
+    public ResponseEntity patch(@RequestBody Map<String, Object> body) {
+
+        PatchValues patch = PatchValues.from(body);
+
+        // проверка на обязательные параметры
+        if (patch.getId() == null || patch.getId() == 0) {
+            return new ResponseEntity("missed param: id", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (patch.getUserId() == null || patch.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (patch.getVersion() == null) {
+            return new ResponseEntity("missed param: version", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        // обязательные поля можно изменить, но не очистить (как в update)
+        String missed = patch.missed("title");
+        if (missed != null) {
+            return new ResponseEntity("missed param: " + missed, HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        try {
+            long version = categoryService.patch(patch.getId(), patch.getUserId(), patch.getVersion(), patch.getValues());
+            return ResponseEntity.ok(Map.of("version", version)); // новая версия - для следующего изменения
+        } catch (NoSuchElementException e) {
+            return new ResponseEntity("id=" + patch.getId() + " not found", HttpStatus.NOT_ACCEPTABLE);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity("outdated version: reload the object", HttpStatus.CONFLICT);
+        } catch (IllegalArgumentException e) { // неизвестное поле или значение неверного типа
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_ACCEPTABLE);
+        }
+    }
+
+
     //     для удаления используем тип запроса DELETE и передаем ID для удаления
 //     можно также использовать метод POST и передавать ID в теле запроса
     @DeleteMapping("/delete/{id}")
@@ -132,4 +190,43 @@ public class CategoryController {
 
         return ResponseEntity.ok(category);
     }
+
+
+    // подсказки по началу слова названия (индекс в памяти, без запроса like к БД)
+    @PostMapping("/autocomplete")
+    public ResponseEntity<List<TitleMatch>> autocomplete(@RequestBody AutocompleteValues autocompleteValues) {
+
+        // проверка на обязательные параметры
+        if (autocompleteValues.getUserId() == null || autocompleteValues.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (autocompleteValues.getPrefix() == null || autocompleteValues.getPrefix().trim().length() == 0) {
+            return new ResponseEntity("missed param: prefix", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        int limit = autocompleteValues.getLimit() == null ? AutocompleteValues.DEFAULT_LIMIT
+                : Math.max(1, Math.min(autocompleteValues.getLimit(), AutocompleteValues.MAX_LIMIT));
+
+        return ResponseEntity.ok(autocomplete.find(autocompleteValues.getUserId(), TitleAutocomplete.Kind.CATEGORY, autocompleteValues.getPrefix().trim(), limit));
+    }
+
+
+    // несколько объектов по списку id за один запрос (вместо отдельного /id на каждый)
+    @PostMapping("/ids")
+    public ResponseEntity<MultiGetResult<Category>> findByIds(@RequestBody IdsValues idsValues) {
+
+        // проверка на обязательные параметры
+        if (idsValues.getUserId() == null || idsValues.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (idsValues.getIds() == null || idsValues.getIds().isEmpty()) {
+            return new ResponseEntity("missed param: ids", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (idsValues.getIds().size() > IdsValues.MAX_SIZE) {
+            return new ResponseEntity("too many ids: max " + IdsValues.MAX_SIZE, HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        // ненайденные id не считаются ошибкой - они перечислены в missing
+        return ResponseEntity.ok(categoryService.findByIds(idsValues.getIds().stream().filter(Objects::nonNull).distinct().toList(), idsValues.getUserId()));
+    }
 }
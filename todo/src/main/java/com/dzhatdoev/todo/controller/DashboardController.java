@@ -0,0 +1,164 @@
+package com.dzhatdoev.todo.controller;
+
+import com.dzhatdoev.entities.entity.Category;
+import com.dzhatdoev.entities.entity.Priority;
+import com.dzhatdoev.entities.entity.Stat;
+import com.dzhatdoev.todo.search.DashboardResult;
+import com.dzhatdoev.todo.search.DashboardValues;
+import com.dzhatdoev.todo.search.TaskSearchValues;
+import com.dzhatdoev.todo.service.CategoryService;
+import com.dzhatdoev.todo.service.PriorityService;
+import com.dzhatdoev.todo.service.StatService;
+import com.dzhatdoev.todo.trace.FlightRecorderAspect;
+import com.dzhatdoev.utils.trace.TraceContext;
+import com.dzhatdoev.utils.trace.Tracer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/*
+Данные первого экрана одним запросом: вместо 4 запросов через gateway (/category/all, /priority/all, /stat, /task/search)
+Все 4 чтения выполняются параллельно (каждое в своей транзакции), поэтому время ответа - примерно время самого долгого из них, а не сумма.
+Пул ограничен (потоков не больше, чем соединений с БД), очередь тоже ограничена - при перегрузке подзапрос выполняется
+в потоке самого запроса (CallerRunsPolicy), т.е. /dashboard становится последовательным, но не падает.
+Пул не объявлен как bean, чтобы не заменять стандартный applicationTaskExecutor Spring Boot.
+Если ответ не готов за todo.dashboard.timeout, подзапросы отменяются: еще не начатые не выполняются, выполняемые прерываются,
+а запросы к БД ограничены тем же временем (statement_timeout в транзакции подзапроса) - после 504 пул и соединения не заняты.
+Подзапросы выполняются в трассировке запроса (span "dashboard ...") и с его пользователем в событиях JFR
+*/
+
+@RestController
+public class DashboardController {
+
+    private final CategoryService categoryService;
+    private final PriorityService priorityService;
+    private final StatService statService;
+    private final TaskController taskController; // поиск задач - с теми же проверками и обработкой параметров, что и /task/search
+    private final Tracer tracer;
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate transactions;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Duration timeout;
+
+    public DashboardController(CategoryService categoryService, PriorityService priorityService, StatService statService,
+                               TaskController taskController, Tracer tracer, TransactionTemplate transactions, JdbcTemplate jdbcTemplate,
+                               @Value("${todo.dashboard.timeout:5s}") Duration timeout,
+                               @Value("${todo.dashboard.threads:8}") int threads, @Value("${todo.dashboard.queue:100}") int queue) {
+        this.categoryService = categoryService;
+        this.priorityService = priorityService;
+        this.statService = statService;
+        this.taskController = taskController;
+        this.tracer = tracer;
+        this.timeout = timeout;
+        this.transactions = transactions;
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queue),
+                r -> new Thread(r, "dashboard"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @PostMapping("/dashboard")
+    public ResponseEntity<DashboardResult> dashboard(@RequestBody DashboardValues values) throws Exception {
+
+        Long userId = values.getUserId();
+
+        // проверка на обязательные параметры
+        if (userId == null || userId == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        TaskSearchValues search = taskSearch(values.getTaskSearch(), userId);
+
+        Future<List<Category>> categories = submit("categories", () -> categoryService.findAll(userId));
+        Future<List<Priority>> priorities = submit("priorities", () -> priorityService.findAll(userId));
+        Future<Stat> stat = submit("stat", () -> statService.findStat(userId));
+        Future<ResponseEntity<Page<?>>> tasks = submit("tasks", () -> taskController.search(search));
+        List<Future<?>> all = List.of(categories, priorities, stat, tasks);
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (Future<?> future : all) {
+                future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            return new ResponseEntity("dashboard timeout", HttpStatus.GATEWAY_TIMEOUT);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException wrapped ? wrapped.getCause() : e.getCause();
+            throw cause instanceof Exception exception ? exception : e; // как если бы ошибка произошла в обычном запросе
+        } finally {
+            for (Future<?> future : all) {
+                future.cancel(true); // завершенные не меняются; остальные не нужны (timeout, ошибка) - отменяются
+            }
+        }
+
+        // ошибка в параметрах поиска задач - отдаем ее так же, как /task/search
+        if (!tasks.get().getStatusCode().is2xxSuccessful()) {
+            return new ResponseEntity(tasks.get().getBody(), tasks.get().getStatusCode());
+        }
+
+        return ResponseEntity.ok(new DashboardResult(categories.get(), priorities.get(), stat.get(), tasks.get().getBody()));
+    }
+
+    // подзапрос в пуле: в трассировке и с пользователем JFR текущего запроса, в своей транзакции;
+    // statement_timeout, а не timeout транзакции: Hibernate считает оставшееся время в целых секундах (при 1s - сразу 0)
+    private <T> Future<T> submit(String name, Callable<T> call) {
+        TraceContext trace = tracer.current();
+        Long jfrUserId = FlightRecorderAspect.requestUserId();
+        return executor.submit(() -> {
+            try (Tracer.Scope scope = tracer.startChild("dashboard " + name, trace)) {
+                return FlightRecorderAspect.withRequestUserId(jfrUserId, () -> transactions.execute(status -> {
+                    jdbcTemplate.queryForObject("select set_config('statement_timeout', ?, true)", String.class, timeout.toMillis() + "ms");
+                    try {
+                        return call.call();
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new CompletionException(e); // TransactionCallback не объявляет проверяемых исключений
+                    }
+                }));
+            }
+        });
+    }
+
+    // параметры поиска задач по умолчанию - первая страница, сортировка по названию
+    private static TaskSearchValues taskSearch(TaskSearchValues search, Long userId) {
+        if (search == null) {
+            search = new TaskSearchValues();
+        }
+        search.setUserId(userId);
+        if (search.getPageNumber() == null) {
+            search.setPageNumber(0);
+        }
+        if (search.getPageSize() == null) {
+            search.setPageSize(10);
+        }
+        if (search.getSortColumn() == null) {
+            search.setSortColumn("title");
+        }
+        return search;
+    }
+}
@@ -1,15 +1,26 @@
 package com.dzhatdoev.todo.controller;
 
 import com.dzhatdoev.todo.service.PriorityService;
+import com.dzhatdoev.todo.version.UserDataVersions;
+import com.dzhatdoev.todo.autocomplete.TitleAutocomplete;
+import com.dzhatdoev.todo.autocomplete.TitleMatch;
+import com.dzhatdoev.todo.search.AutocompleteValues;
 import com.dzhatdoev.entities.entity.Priority;
 import com.dzhatdoev.todo.search.PrioritySearchValues;
+import com.dzhatdoev.todo.search.IdsValues;
+import com.dzhatdoev.todo.search.MultiGetResult;
+import com.dzhatdoev.todo.search.PatchValues;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 
 
 /*
@@ -36,14 +47,20 @@ public class PriorityController {
 
     // используем автоматическое внедрение экземпляра класса через конструктор
     // не используем @Autowired ля переменной класса, т.к. "Field injection is not recommended "
-    public PriorityController(PriorityService priorityService) {
+    private final UserDataVersions versions;
+    private final TitleAutocomplete autocomplete;
+
+    public PriorityController(PriorityService priorityService, UserDataVersions versions, TitleAutocomplete autocomplete) {
         this.priorityService = priorityService;
+        this.versions = versions;
+        this.autocomplete = autocomplete;
     }
 
 
+    // список меняется редко - отдаем ETag, и если у клиента актуальная версия (If-None-Match), отвечаем 304 без запроса в БД
     @PostMapping("/all")
-    public List<Priority> findAll(@RequestBody Long id) {
-        return priorityService.findAll(id);
+    public ResponseEntity<List<Priority>> findAll(@RequestBody Long id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return versions.conditional(id, UserDataVersions.Collection.PRIORITIES, ifNoneMatch, () -> priorityService.findAll(id));
     }
 
 
@@ -91,7 +108,11 @@ public class PriorityController {
         }
 
         // save работает как на добавление, так и на обновление
-        priorityService.update(priority);
+        try {
+            priorityService.update(priority);
+        } catch (OptimisticLockingFailureException e) { // объект уже изменил кто-то другой (передана устаревшая version)
+            return new ResponseEntity("outdated version: reload the object", HttpStatus.CONFLICT);
+        }
 
 
         return new ResponseEntity<>(HttpStatus.OK); // просто отправляем статус 200 (операция прошла успешно)
@@ -117,6 +138,82 @@ public class PriorityController {
     }
 
 
+    // подсказки по началу слова названия (индекс в памяти, без запроса like к БД)
+    @PostMapping("/autocomplete")
+    public ResponseEntity<List<TitleMatch>> autocomplete(@RequestBody AutocompleteValues autocompleteValues) {
+
+        // проверка на обязательные параметры
+        if (autocompleteValues.getUserId() == null || autocompleteValues.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (autocompleteValues.getPrefix() == null || autocompleteValues.getPrefix().trim().length() == 0) {
+            return new ResponseEntity("missed param: prefix", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        int limit = autocompleteValues.getLimit() == null ? AutocompleteValues.DEFAULT_LIMIT
+                : Math.max(1, Math.min(autocompleteValues.getLimit(), AutocompleteValues.MAX_LIMIT));
+
+        return ResponseEntity.ok(autocomplete.find(autocompleteValues.getUserId(), TitleAutocomplete.Kind.PRIORITY, autocompleteValues.getPrefix().trim(), limit));
+    }
+
+
+    // несколько объектов по списку id за один запрос (вместо отдельного /id на каждый)
+    @PostMapping("/ids")
+    public ResponseEntity<MultiGetResult<Priority>> findByIds(@RequestBody IdsValues idsValues) {
+
+        // проверка на обязательные параметры
+        if (idsValues.getUserId() == null || idsValues.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (idsValues.getIds() == null || idsValues.getIds().isEmpty()) {
+            return new ResponseEntity("missed param: ids", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (idsValues.getIds().size() > IdsValues.MAX_SIZE) {
+            return new ResponseEntity("too many ids: max " + IdsValues.MAX_SIZE, HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        // ненайденные id не считаются ошибкой - они перечислены в missing
+        return ResponseEntity.ok(priorityService.findByIds(idsValues.getIds().stream().filter(Objects::nonNull).distinct().toList(), idsValues.getUserId()));
+    }
+
+
+    // частичное изменение: передаются только id, userId, version и изменяемые поля
+    // выполняется один UPDATE с проверкой версии, без предварительного чтения объекта
+    @PatchMapping("/patch")
+    public ResponseEntity patch(@RequestBody Map<String, Object> body) {
+
+        PatchValues patch = PatchValues.from(body);
+
+        // проверка на обязательные параметры
+        if (patch.getId() == null || patch.getId() == 0) {
+            return new ResponseEntity("missed param: id", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (patch.getUserId() == null || patch.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (patch.getVersion() == null) {
+            return new ResponseEntity("missed param: version", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        // обязательные поля можно изменить, но не очистить (как в update)
+        String missed = patch.missed("title", "color");
+        if (missed != null) {
+            return new ResponseEntity("missed param: " + missed, HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        try {
+            long version = priorityService.patch(patch.getId(), patch.getUserId(), patch.getVersion(), patch.getValues());
+            return ResponseEntity.ok(Map.of("version", version)); // новая версия - для следующего изменения
+        } catch (NoSuchElementException e) {
+            return new ResponseEntity("id=" + patch.getId() + " not found", HttpStatus.NOT_ACCEPTABLE);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity("outdated version: reload the object", HttpStatus.CONFLICT);
+        } catch (IllegalArgumentException e) { // неизвестное поле или значение неверного типа
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_ACCEPTABLE);
+        }
+    }
+
+
     // для удаления используем типа запроса put, а не delete, т.к. он позволяет передавать значение в body, а не в адресной строке
     @DeleteMapping("/delete/{id}")
     public ResponseEntity delete(@PathVariable("id") Long id) {
@@ -0,0 +1,53 @@
+package com.dzhatdoev.todo.controller;
+
+import com.dzhatdoev.todo.repo.FullTextSearch;
+import com.dzhatdoev.todo.search.FullTextSearchValues;
+import com.dzhatdoev.todo.search.SearchHit;
+import com.dzhatdoev.todo.service.SearchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Set;
+
+/*
+Общий поиск по названиям задач, категорий и приоритетов с сортировкой по релевантности.
+В отличие от /task/search, /category/search, /priority/search (like '%x%') ищет по началу слов и с учетом опечаток
+*/
+
+@RestController
+public class SearchController {
+
+    private final SearchService searchService;
+
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    @PostMapping("/search")
+    public ResponseEntity<List<SearchHit>> search(@RequestBody FullTextSearchValues searchValues) {
+
+        // проверка на обязательные параметры
+        if (searchValues.getUserId() == null || searchValues.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (searchValues.getText() == null || searchValues.getText().trim().length() == 0) {
+            return new ResponseEntity("missed param: text", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        Set<String> types = searchValues.getTypes() == null || searchValues.getTypes().isEmpty() ? FullTextSearch.TYPES : searchValues.getTypes();
+        for (String type : types) {
+            if (!FullTextSearch.TYPES.contains(type)) {
+                return new ResponseEntity("unknown type: " + type, HttpStatus.NOT_ACCEPTABLE);
+            }
+        }
+
+        int limit = searchValues.getLimit() == null ? FullTextSearchValues.DEFAULT_LIMIT
+                : Math.max(1, Math.min(searchValues.getLimit(), FullTextSearchValues.MAX_LIMIT));
+
+        return ResponseEntity.ok(searchService.search(searchValues.getUserId(), searchValues.getText().trim(), types, limit));
+    }
+}
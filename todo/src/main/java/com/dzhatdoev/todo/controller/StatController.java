@@ -2,9 +2,12 @@ package com.dzhatdoev.todo.controller;
 
 import com.dzhatdoev.entities.entity.Stat;
 import com.dzhatdoev.todo.service.StatService;
+import com.dzhatdoev.todo.version.UserDataVersions;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 
@@ -30,17 +33,19 @@ public class StatController {
 
     // используем автоматическое внедрение экземпляра класса через конструктор
     // не используем @Autowired ля переменной класса, т.к. "Field injection is not recommended "
-    public StatController(StatService statService) {
+    private final UserDataVersions versions;
+
+    public StatController(StatService statService, UserDataVersions versions) {
         this.statService = statService;
+        this.versions = versions;
     }
 
 
     // для статистика всгда получаем только одну строку с id=1 (согласно таблице БД)
+    // статистика меняется только вместе с задачами - если у клиента актуальный ETag, отвечаем 304 без запроса в БД
     @PostMapping("/stat")
-    public ResponseEntity<Stat> findById(@RequestBody Long id) {
-
-        // можно не использовать ResponseEntity, а просто вернуть коллекцию, код все равно будет 200 ОК
-        return ResponseEntity.ok(statService.findStat(id));
+    public ResponseEntity<Stat> findById(@RequestBody Long id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return versions.conditional(id, UserDataVersions.Collection.STAT, ifNoneMatch, () -> statService.findStat(id));
     }
 
 
@@ -1,8 +1,16 @@
 package com.dzhatdoev.todo.controller;
 
 import com.dzhatdoev.entities.entity.Task;
+import com.dzhatdoev.todo.autocomplete.TitleAutocomplete;
+import com.dzhatdoev.todo.autocomplete.TitleMatch;
+import com.dzhatdoev.todo.search.AutocompleteValues;
+import com.dzhatdoev.todo.repo.TaskRepositoryCustom;
 import com.dzhatdoev.todo.service.TaskService;
+import com.dzhatdoev.todo.service.TaskSyncService;
+import com.dzhatdoev.todo.sync.TaskChanges;
+import com.dzhatdoev.todo.sync.TaskChangesValues;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -10,12 +18,22 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.dzhatdoev.todo.search.TaskSearchValues;
+import com.dzhatdoev.todo.search.CalendarDay;
+import com.dzhatdoev.todo.search.CalendarValues;
+import com.dzhatdoev.todo.search.IdsValues;
+import com.dzhatdoev.todo.search.MultiGetResult;
+import com.dzhatdoev.todo.search.NormalizedTasks;
+import com.dzhatdoev.todo.search.PatchValues;
 
 import java.text.ParseException;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 
 
 /*
@@ -38,12 +56,16 @@ public class TaskController {
 
     public static final String ID_COLUMN = "id"; // имя столбца id
     private final TaskService taskService; // сервис для доступа к данным (напрямую к репозиториям не обращаемся)
+    private final TaskSyncService taskSyncService;
+    private final TitleAutocomplete autocomplete;
 
 
     // используем автоматическое внедрение экземпляра класса через конструктор
     // не используем @Autowired ля переменной класса, т.к. "Field injection is not recommended "
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, TaskSyncService taskSyncService, TitleAutocomplete autocomplete) {
         this.taskService = taskService;
+        this.taskSyncService = taskSyncService;
+        this.autocomplete = autocomplete;
     }
 
 
@@ -53,6 +75,24 @@ public class TaskController {
         return ResponseEntity.ok(taskService.findAll(id)); // поиск всех задач конкретного пользователя
     }
 
+    // то же, но каждый приоритет и категория передаются один раз (в задаче - только priorityId/categoryId)
+    @PostMapping(value = "/all", params = "normalized=true")
+    public ResponseEntity<NormalizedTasks> findAllNormalized(@RequestBody Long id) {
+        return ResponseEntity.ok(NormalizedTasks.of(taskService.findAll(id)));
+    }
+
+    // изменения задач после отметки since (вместо повторной загрузки всех задач через /all)
+    @PostMapping("/changes")
+    public ResponseEntity<TaskChanges> changes(@RequestBody TaskChangesValues values) {
+
+        // проверка на обязательные параметры
+        if (values.getUserId() == null || values.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        return ResponseEntity.ok(taskSyncService.changes(values.getUserId(), values.getSince()));
+    }
+
     // добавление
     @PostMapping("/add")
     public ResponseEntity<Task> add(@RequestBody Task task) {
@@ -68,7 +108,11 @@ public class TaskController {
             return new ResponseEntity("missed param: title", HttpStatus.NOT_ACCEPTABLE);
         }
 
-        return ResponseEntity.ok(taskService.add(task)); // возвращаем созданный объект со сгенерированным id
+        try {
+            return ResponseEntity.ok(taskService.add(task)); // возвращаем созданный объект со сгенерированным id
+        } catch (NoSuchElementException e) { // указана несуществующая категория или приоритет
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_ACCEPTABLE);
+        }
 
     }
 
@@ -89,21 +133,65 @@ public class TaskController {
 
 
         // save работает как на добавление, так и на обновление
-        taskService.update(task);
+        try {
+            taskService.update(task);
+        } catch (OptimisticLockingFailureException e) { // объект уже изменил кто-то другой (передана устаревшая version)
+            return new ResponseEntity("outdated version: reload the object", HttpStatus.CONFLICT);
+        } catch (NoSuchElementException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_ACCEPTABLE);
+        }
 
         return new ResponseEntity(HttpStatus.OK); // просто отправляем статус 200 (операция прошла успешно)
 
     }
 
 
+    // частичное изменение: передаются только id, userId, version и изменяемые поля
+    // выполняется один UPDATE с проверкой версии, без предварительного чтения объекта
+    @PatchMapping("/patch")
+    public ResponseEntity patch(@RequestBody Map<String, Object> body) {
+
+        PatchValues patch = PatchValues.from(body);
+
+        // проверка на обязательные параметры
+        if (patch.getId() == null || patch.getId() == 0) {
+            return new ResponseEntity("missed param: id", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (patch.getUserId() == null || patch.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (patch.getVersion() == null) {
+            return new ResponseEntity("missed param: version", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        // обязательные поля можно изменить, но не очистить (как в update)
+        String missed = patch.missed("title", "completed");
+        if (missed != null) {
+            return new ResponseEntity("missed param: " + missed, HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        try {
+            long version = taskService.patch(patch.getId(), patch.getUserId(), patch.getVersion(), patch.getValues());
+            return ResponseEntity.ok(Map.of("version", version)); // новая версия - для следующего изменения
+        } catch (NoSuchElementException e) {
+            return new ResponseEntity("id=" + patch.getId() + " not found", HttpStatus.NOT_ACCEPTABLE);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity("outdated version: reload the object", HttpStatus.CONFLICT);
+        } catch (IllegalArgumentException e) { // неизвестное поле или значение неверного типа
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_ACCEPTABLE);
+        }
+    }
+
+
     // для удаления используем типа запроса put, а не delete, т.к. он позволяет передавать значение в body, а не в адресной строке
+    // userId необязателен, но с ним задача ищется только в секции этого пользователя
     @DeleteMapping("/delete/{id}")
-    public ResponseEntity delete(@PathVariable("id") Long id) {
+    public ResponseEntity delete(@PathVariable("id") Long id, @RequestParam(value = "userId", required = false) Long userId) {
 
         // можно обойтись и без try-catch, тогда будет возвращаться полная ошибка (stacktrace)
         // здесь показан пример, как можно обрабатывать исключение и отправлять свой текст/статус
         try {
-            taskService.deleteById(id);
+            taskService.deleteById(id, userId);
         } catch (EmptyResultDataAccessException e) {
             e.printStackTrace();
             return new ResponseEntity("id=" + id + " not found", HttpStatus.NOT_ACCEPTABLE);
@@ -131,9 +219,98 @@ public class TaskController {
     }
 
 
+    // подсказки по началу слова названия (индекс в памяти, без запроса like к БД)
+    @PostMapping("/autocomplete")
+    public ResponseEntity<List<TitleMatch>> autocomplete(@RequestBody AutocompleteValues autocompleteValues) {
+
+        // проверка на обязательные параметры
+        if (autocompleteValues.getUserId() == null || autocompleteValues.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (autocompleteValues.getPrefix() == null || autocompleteValues.getPrefix().trim().length() == 0) {
+            return new ResponseEntity("missed param: prefix", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        int limit = autocompleteValues.getLimit() == null ? AutocompleteValues.DEFAULT_LIMIT
+                : Math.max(1, Math.min(autocompleteValues.getLimit(), AutocompleteValues.MAX_LIMIT));
+
+        return ResponseEntity.ok(autocomplete.find(autocompleteValues.getUserId(), TitleAutocomplete.Kind.TASK, autocompleteValues.getPrefix().trim(), limit));
+    }
+
+
+    // несколько объектов по списку id за один запрос (вместо отдельного /id на каждый)
+    @PostMapping("/ids")
+    public ResponseEntity<MultiGetResult<Task>> findByIds(@RequestBody IdsValues idsValues) {
+
+        // проверка на обязательные параметры
+        if (idsValues.getUserId() == null || idsValues.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (idsValues.getIds() == null || idsValues.getIds().isEmpty()) {
+            return new ResponseEntity("missed param: ids", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (idsValues.getIds().size() > IdsValues.MAX_SIZE) {
+            return new ResponseEntity("too many ids: max " + IdsValues.MAX_SIZE, HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        // ненайденные id не считаются ошибкой - они перечислены в missing
+        return ResponseEntity.ok(taskService.findByIds(idsValues.getIds().stream().filter(Objects::nonNull).distinct().toList(), idsValues.getUserId()));
+    }
+
+
+    // количество выполненных/невыполненных задач по дням за период (для календаря) - считается в БД, задачи не загружаются
+    @PostMapping("/calendar")
+    public ResponseEntity<List<CalendarDay>> calendar(@RequestBody CalendarValues calendarValues) {
+
+        // проверка на обязательные параметры
+        if (calendarValues.getUserId() == null || calendarValues.getUserId() == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (calendarValues.getDateFrom() == null) {
+            return new ResponseEntity("missed param: dateFrom", HttpStatus.NOT_ACCEPTABLE);
+        }
+        if (calendarValues.getDateTo() == null) {
+            return new ResponseEntity("missed param: dateTo", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        long days = ChronoUnit.DAYS.between(calendarValues.getDateFrom(), calendarValues.getDateTo()) + 1;
+        if (days < 1 || days > CalendarValues.MAX_DAYS) {
+            return new ResponseEntity("wrong period: max " + CalendarValues.MAX_DAYS + " days", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        String groupBy = calendarValues.getGroupBy();
+        if (groupBy != null && !CalendarValues.GROUP_BY.contains(groupBy)) {
+            return new ResponseEntity("unknown groupBy: " + groupBy, HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        // только названия часовых поясов (Europe/Moscow), которые понимает и БД
+        String timeZone = calendarValues.getTimeZone();
+        if (timeZone != null && !ZoneId.getAvailableZoneIds().contains(timeZone)) {
+            return new ResponseEntity("unknown timeZone: " + timeZone, HttpStatus.NOT_ACCEPTABLE);
+        }
+        ZoneId userZone = timeZone == null ? ZoneId.systemDefault() : ZoneId.of(timeZone);
+
+        return ResponseEntity.ok(taskService.countByDays(calendarValues.getUserId(), calendarValues.getDateFrom(), calendarValues.getDateTo(),
+                userZone, groupBy, Boolean.TRUE.equals(calendarValues.getIncludeArchived())));
+    }
+
+
+    // /search без повторов справочников в каждой задаче (см. NormalizedTasks)
+    // при выборе полей (fields) ответ не меняется - справочники и так не выбираются, если их не запросили
+    @PostMapping(value = "/search", params = "normalized=true")
+    public ResponseEntity<?> searchNormalized(@RequestBody TaskSearchValues taskSearchValues) throws ParseException {
+        ResponseEntity<Page<?>> result = search(taskSearchValues);
+
+        if (result.getStatusCode() != HttpStatus.OK || taskSearchValues.getFields() != null && !taskSearchValues.getFields().isEmpty()) {
+            return result;
+        }
+        return ResponseEntity.ok(NormalizedTasks.of(result.getBody()));
+    }
+
+
     // поиск по любым параметрам TaskSearchValues
     @PostMapping("/search")
-    public ResponseEntity<Page<Task>> search(@RequestBody TaskSearchValues taskSearchValues) throws ParseException {
+    public ResponseEntity<Page<?>> search(@RequestBody TaskSearchValues taskSearchValues) throws ParseException {
 
         // исключить NullPointerException
         String title = taskSearchValues.getTitle() != null ? taskSearchValues.getTitle() : null;
@@ -157,6 +334,17 @@ public class TaskController {
             return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
         }
 
+        List<String> fields = taskSearchValues.getFields();
+
+        // можно запрашивать только известные поля (имя поля попадает в запрос к БД)
+        if (fields != null) {
+            for (String field : fields) {
+                if (!TaskRepositoryCustom.SEARCH_FIELDS.contains(field)) {
+                    return new ResponseEntity("unknown field: " + field, HttpStatus.NOT_ACCEPTABLE);
+                }
+            }
+        }
+
 
         // чтобы захватить в выборке все задачи по датам, независимо от времени - можно выставить время с 00:00 до 23:59
 
@@ -208,6 +396,18 @@ public class TaskController {
         // объект постраничности
         PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, sort);
 
+        // по умолчанию ищем только среди активных задач, архив - только по явному запросу
+        boolean includeArchived = Boolean.TRUE.equals(taskSearchValues.getIncludeArchived());
+
+        // если указаны поля - выбираем из БД только их
+        if (fields != null && !fields.isEmpty()) {
+            return ResponseEntity.ok(taskService.findFieldsByParams(fields.stream().distinct().toList(), includeArchived, title, completed, priorityId, categoryId, userId, dateFrom, dateTo, pageRequest));
+        }
+
+        if (includeArchived) {
+            return ResponseEntity.ok(taskService.findWithArchiveByParams(title, completed, priorityId, categoryId, userId, dateFrom, dateTo, pageRequest));
+        }
+
         // результат запроса с постраничным выводом
         Page<Task> result = taskService.findByParams(title, completed, priorityId, categoryId, userId, dateFrom, dateTo, pageRequest);
 
@@ -0,0 +1,83 @@
+package com.dzhatdoev.todo.controller;
+
+import com.dzhatdoev.todo.importer.ImportProgress;
+import com.dzhatdoev.todo.importer.TaskRowReader;
+import com.dzhatdoev.todo.service.TaskImportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/*
+
+Импорт задач пользователя из других планировщиков: тело запроса - CSV (text/csv) или NDJSON (application/x-ndjson),
+читается по мере поступления (см. TaskImportService), поэтому размер файла не ограничен памятью сервиса.
+Ход импорта - POST /task/import/progress с importId (передать свой importId в параметрах, чтобы узнавать ход во время импорта)
+
+*/
+
+@RestController
+@RequestMapping("/task") // базовый URI
+public class TaskImportController {
+
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final TaskImportService importService;
+
+    public TaskImportController(TaskImportService importService) {
+        this.importService = importService;
+    }
+
+    // curl -H 'Content-Type: text/csv' --data-binary @tasks.csv '.../task/import?userId=1&importId=my-import'
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportProgress> importTasks(@RequestParam(required = false) Long userId,
+                                                      @RequestParam(required = false) String importId,
+                                                      @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                      InputStream body) {
+
+        // проверка на обязательные параметры
+        if (userId == null || userId == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        MediaType type = MediaType.parseMediaType(contentType);
+        TaskRowReader.Format format = type.isCompatibleWith(CSV) ? TaskRowReader.Format.CSV : TaskRowReader.Format.NDJSON;
+        Charset charset = type.getCharset() == null ? StandardCharsets.UTF_8 : type.getCharset();
+
+        ImportProgress result;
+        try {
+            result = importService.importTasks(userId, importId == null ? UUID.randomUUID().toString() : importId, format, body, charset);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        if (result == null) { // идет todo.import.max-concurrent импортов
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "60");
+            return new ResponseEntity("too many imports: retry later", headers, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        // данные не удалось прочитать (например, нет столбца title) - ничего не импортировано, причина в error
+        return new ResponseEntity<>(result, result.getState() == ImportProgress.State.FAILED ? HttpStatus.NOT_ACCEPTABLE : HttpStatus.OK);
+    }
+
+    @PostMapping("/import/progress")
+    public ResponseEntity<ImportProgress> progress(@RequestBody String importId) {
+        ImportProgress progress = importService.progress(importId);
+        if (progress == null) {
+            return new ResponseEntity("importId=" + importId + " not found", HttpStatus.NOT_ACCEPTABLE);
+        }
+        return ResponseEntity.ok(progress);
+    }
+}
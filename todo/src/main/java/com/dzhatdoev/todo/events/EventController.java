@@ -0,0 +1,44 @@
+package com.dzhatdoev.todo.events;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/*
+Поток изменений данных пользователя (Server-Sent Events) вместо периодического опроса /task/search и /stat.
+GET, т.к. браузерный EventSource умеет только GET.
+События: task, category, priority (data - TodoEvent), stat (счетчики изменились - перечитать /stat и /category/all),
+resync (часть событий пропущена - перечитать все данные), ready (подписка создана)
+*/
+
+@RestController
+@RequestMapping("/events")
+public class EventController {
+
+    private final SseHub hub;
+
+    public EventController(SseHub hub) {
+        this.hub = hub;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Void> subscribe(@RequestParam(required = false) Long userId, HttpServletRequest request,
+                                          HttpServletResponse response) throws IOException {
+
+        // проверка на обязательные параметры
+        if (userId == null || userId == 0) {
+            return new ResponseEntity("missed param: userId", HttpStatus.NOT_ACCEPTABLE);
+        }
+
+        hub.subscribe(userId, request, response); // ответ пишет SseHub (неблокирующая запись в асинхронном запросе)
+        return null;
+    }
+}
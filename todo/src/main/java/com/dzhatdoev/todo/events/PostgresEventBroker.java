@@ -0,0 +1,129 @@
+package com.dzhatdoev.todo.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.java.Log;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Обмен событиями между экземплярами todo через Postgres LISTEN/NOTIFY (отдельный брокер не нужен).
+ * Отправка - pg_notify в текущей транзакции, поэтому другие экземпляры получат событие только после commit.
+ * Прием - отдельное соединение (не из пула), на котором выполнен LISTEN; свои события пропускаются,
+ * т.к. они уже обработаны локально (TodoEvents). После разрыва соединения часть событий могла потеряться -
+ * все ETag сбрасываются, а подписчики получают resync
+ */
+@Component
+@ConditionalOnProperty(name = "todo.events.broker", havingValue = "postgres", matchIfMissing = true)
+@Log
+public class PostgresEventBroker implements SmartLifecycle {
+
+    private static final String CHANNEL = "todo_events";
+
+    private final String origin = UUID.randomUUID().toString(); // id этого экземпляра
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSource;
+    private final ObjectMapper mapper;
+    private final TodoEvents events;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresEventBroker(JdbcTemplate jdbcTemplate, DataSourceProperties dataSource, ObjectMapper mapper, @Lazy TodoEvents events) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.mapper = mapper;
+        this.events = events;
+    }
+
+    // payload: "<origin> <json>"
+    void send(TodoEvent event) {
+        try {
+            String payload = origin + " " + mapper.writeValueAsString(event);
+            jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+        } catch (Exception e) {
+            // уведомление не должно мешать изменению данных (payload маленький, ошибка SQL здесь маловероятна)
+            log.warning("Cannot send event " + event.getType() + ": " + e);
+        }
+    }
+
+    private void listen() {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSource.determineUrl(), dataSource.determineUsername(), dataSource.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (connectedBefore) {
+                    events.lost(); // пока соединения не было, события не принимались
+                }
+                connectedBefore = true;
+
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(1000);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receive(notification.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warning("Event listener disconnected: " + e);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        int space = payload.indexOf(' ');
+        if (space < 0 || payload.substring(0, space).equals(origin)) {
+            return;
+        }
+        try {
+            events.deliver(mapper.readValue(payload.substring(space + 1), TodoEvent.class));
+        } catch (Exception e) {
+            log.warning("Cannot read event: " + e);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "pg-event-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
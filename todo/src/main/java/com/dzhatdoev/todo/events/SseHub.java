@@ -0,0 +1,253 @@
+package com.dzhatdoev.todo.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SSE подписки пользователей на этом экземпляре.
+ * Открытое соединение не занимает поток (асинхронный запрос Tomcat) - память на подписчика это очередь событий.
+ * Запись неблокирующая (WriteListener): событие пишется, только пока сокет готов принять данные, иначе остается в очереди
+ * до onWritePossible - поток не ждет клиента ни при каких условиях.
+ * Если клиент не успевает читать и очередь переполнилась - очередь очищается и клиент получает событие resync
+ * (перечитать данные целиком). Если сокет не принимает данные дольше todo.events.write-timeout (клиент завис
+ * или соединение оборвалось без закрытия) - подписка закрывается при следующем heartbeat
+ */
+@Component
+@Log
+public class SseHub implements DisposableBean {
+
+    private static final byte[] READY = frame("ready", "");
+    private static final byte[] RESYNC = frame("resync", "");
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final ObjectMapper mapper;
+
+    @Value("${todo.events.timeout:30m}")
+    private Duration timeout; // после этого соединение закрывается, EventSource переподключается сам
+
+    @Value("${todo.events.queue-size:32}")
+    private int queueSize;
+
+    @Value("${todo.events.write-timeout:30s}")
+    private Duration writeTimeout;
+
+    public SseHub(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public void subscribe(Long userId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+
+        AsyncContext context = request.startAsync();
+        context.setTimeout(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(userId, context, response.getOutputStream(), new ArrayBlockingQueue<>(queueSize));
+        context.addListener(subscriber);
+
+        subscribers.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriber.queue.offer(READY);
+        subscriber.out.setWriteListener(subscriber); // контейнер сразу вызовет onWritePossible
+    }
+
+    public void dispatch(TodoEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        Set<Subscriber> set = subscribers.get(event.getUserId());
+        if (set == null) {
+            return;
+        }
+        byte[] frame;
+        try {
+            frame = frame(event.getType().name().toLowerCase(), mapper.writeValueAsString(event)); // один раз для всех подписчиков
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (Subscriber subscriber : set) {
+            subscriber.offer(frame);
+        }
+    }
+
+    public void resyncAll() {
+        subscribers.values().forEach(set -> set.forEach(Subscriber::overflow));
+    }
+
+    // комментарий раз в интервал: прокси не закрывают соединение по простою, а отключившиеся клиенты обнаруживаются и удаляются;
+    // подписки, сокет которых не принимает данные дольше write-timeout, закрываются
+    @Scheduled(fixedDelayString = "${todo.events.heartbeat:PT30S}", initialDelayString = "${todo.events.heartbeat:PT30S}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(set -> set.forEach(s -> {
+            long stalled = s.stalledSince;
+            if (stalled != 0 && now - stalled > writeTimeout.toNanos()) {
+                log.info("SSE subscriber of user " + s.userId + " has not accepted data for " + writeTimeout + ", closing");
+                s.close();
+            } else {
+                s.offer(HEARTBEAT);
+            }
+        }));
+    }
+
+    public int count() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (k, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        subscribers.values().forEach(set -> set.forEach(Subscriber::close));
+    }
+
+    private static byte[] frame(String name, String data) {
+        return ("event:" + name + "\ndata:" + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private class Subscriber implements WriteListener, AsyncListener {
+
+        private final Long userId;
+        private final AsyncContext context;
+        private final ServletOutputStream out;
+        private final BlockingQueue<byte[]> queue;
+
+        private volatile boolean overflow;
+        private volatile long stalledSince; // System.nanoTime(), когда сокет перестал принимать данные; 0 - принимает
+        private boolean unflushed; // под synchronized
+        private boolean closed;
+
+        Subscriber(Long userId, AsyncContext context, ServletOutputStream out, BlockingQueue<byte[]> queue) {
+            this.userId = userId;
+            this.context = context;
+            this.out = out;
+            this.queue = queue;
+        }
+
+        void offer(byte[] frame) {
+            if (!queue.offer(frame)) {
+                overflow();
+                return;
+            }
+            drain();
+        }
+
+        // вместо потерянных событий клиент получит одно событие resync
+        void overflow() {
+            overflow = true;
+            queue.clear();
+            drain();
+        }
+
+        @Override
+        public void onWritePossible() {
+            drain();
+        }
+
+        // вызывается и контейнером (onWritePossible), и потоками, публикующими события - поэтому synchronized;
+        // пишет, пока сокет готов, и никогда не ждет
+        private synchronized void drain() {
+            if (closed) {
+                return;
+            }
+            try {
+                while (out.isReady()) {
+                    byte[] frame;
+                    if (overflow) {
+                        overflow = false;
+                        frame = RESYNC;
+                    } else {
+                        frame = queue.poll();
+                    }
+                    if (frame == null) {
+                        if (!unflushed) {
+                            stalledSince = 0;
+                            return;
+                        }
+                        unflushed = false;
+                        out.flush();
+                        continue;
+                    }
+                    out.write(frame);
+                    unflushed = true;
+                }
+                // isReady() = false: контейнер вызовет onWritePossible, когда клиент прочитает данные
+                if (stalledSince == 0) {
+                    stalledSince = System.nanoTime();
+                }
+            } catch (IOException | IllegalStateException e) { // клиент отключился
+                close();
+            }
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            remove(this);
+            queue.clear();
+            try {
+                context.complete();
+            } catch (IllegalStateException e) { // запрос уже завершен контейнером
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            synchronized (this) {
+                closed = true;
+            }
+            remove(this);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.dzhatdoev.todo.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+// изменение данных пользователя - отправляется подписчикам (/events) и другим экземплярам todo
+public class TodoEvent {
+
+    public enum Type {TASK, CATEGORY, PRIORITY, STAT}
+
+    public enum Action {CREATED, UPDATED, DELETED, ARCHIVED} // ARCHIVED - задачи перенесены в архив (видны только с includeArchived)
+
+    private Type type;
+    private Action action;
+    private Long userId;
+    private Long id; // id измененного объекта (для STAT не заполняется)
+
+}
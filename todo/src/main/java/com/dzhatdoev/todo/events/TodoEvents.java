@@ -0,0 +1,71 @@
+package com.dzhatdoev.todo.events;
+
+import com.dzhatdoev.todo.autocomplete.TitleAutocomplete;
+import com.dzhatdoev.todo.version.UserDataVersions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Публикация изменений данных пользователя.
+ * На этом экземпляре событие обрабатывается после commit (при откате данные не изменились и событий нет):
+ * увеличиваются версии для ETag, обновляются индексы автодополнения и событие уходит SSE подписчикам пользователя.
+ * Другие экземпляры получают событие через PostgresEventBroker (NOTIFY тоже доставляется только после commit)
+ */
+@Component
+public class TodoEvents {
+
+    private final UserDataVersions versions;
+    private final SseHub hub;
+    private final TitleAutocomplete autocomplete;
+    private final ObjectProvider<PostgresEventBroker> broker; // нет, если todo.events.broker=local (один экземпляр)
+
+    public TodoEvents(UserDataVersions versions, SseHub hub, TitleAutocomplete autocomplete, ObjectProvider<PostgresEventBroker> broker) {
+        this.versions = versions;
+        this.hub = hub;
+        this.autocomplete = autocomplete;
+        this.broker = broker;
+    }
+
+    public void publish(TodoEvent.Type type, TodoEvent.Action action, Long userId, Long id) {
+        publish(new TodoEvent(type, action, userId, id));
+
+        // счетчики статистики (и категорий) меняются триггерами в БД при любом изменении задач
+        if (type == TodoEvent.Type.TASK) {
+            publish(new TodoEvent(TodoEvent.Type.STAT, TodoEvent.Action.UPDATED, userId, null));
+        }
+    }
+
+    private void publish(TodoEvent event) {
+        PostgresEventBroker pg = broker.getIfAvailable();
+        if (pg != null) {
+            pg.send(event); // в текущей транзакции
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(event);
+                }
+            });
+        } else {
+            deliver(event);
+        }
+    }
+
+    // обработка события (своего после commit или полученного от другого экземпляра)
+    void deliver(TodoEvent event) {
+        versions.onEvent(event);
+        autocomplete.onEvent(event);
+        hub.dispatch(event);
+    }
+
+    // события могли быть потеряны (например, при переподключении к брокеру) - сбрасываем все ETag и просим клиентов перечитать данные
+    void lost() {
+        versions.bump(null);
+        autocomplete.invalidateAll();
+        hub.resyncAll();
+    }
+}
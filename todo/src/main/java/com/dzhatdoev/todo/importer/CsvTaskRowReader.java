@@ -0,0 +1,117 @@
+package com.dzhatdoev.todo.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV (RFC 4180) с заголовком: title,completed,taskDate,category,priority - в любом порядке, лишние столбцы не читаются
+ * (task_date тоже подходит). Значения в кавычках могут содержать запятые, переводы строк и "" (кавычку)
+ */
+public class CsvTaskRowReader extends TaskRowReader {
+
+    private static final int MAX_FIELD_LENGTH = 65536; // незакрытая кавычка не должна прочитать в память весь файл
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    private long line = 1; // текущая строка входных данных
+    private boolean eof;
+
+    public CsvTaskRowReader(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        List<String> header = readRecord();
+        if (header == null) {
+            eof = true;
+            return;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT).replace("_", "");
+            columns.putIfAbsent(name.startsWith("\uFEFF") ? name.substring(1) : name, i); // BOM в начале файла
+        }
+        if (!columns.containsKey("title")) {
+            throw new InvalidRowException(1, "missed column: title");
+        }
+    }
+
+    @Override
+    public TaskImportRow next() throws IOException {
+        while (!eof) {
+            long start = line;
+            List<String> record = readRecord();
+            if (record == null) {
+                return null;
+            }
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue; // пустая строка
+            }
+            return row(start, get(record, "title"), get(record, "completed"), get(record, "taskdate"),
+                    get(record, "category"), get(record, "priority"));
+        }
+        return null;
+    }
+
+    private String get(List<String> record, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= record.size() ? null : record.get(index);
+    }
+
+    // следующая запись (значения полей); null - данные закончились
+    private List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (field.length() > MAX_FIELD_LENGTH) {
+                throw new IOException("line " + line + ": field is longer than " + MAX_FIELD_LENGTH + " characters");
+            }
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                line++;
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (c == -1) {
+            eof = true;
+            if (!any) {
+                return null;
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
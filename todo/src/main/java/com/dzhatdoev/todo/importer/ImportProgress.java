@@ -0,0 +1,55 @@
+package com.dzhatdoev.todo.importer;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Getter
+// ход импорта задач (POST /task/import/progress во время импорта, итог - в ответе /task/import)
+public class ImportProgress {
+
+    public enum State {RUNNING, FINISHED, FAILED}
+
+    private final String importId;
+    private final Long userId;
+
+    private volatile State state = State.RUNNING;
+    private volatile String error; // причина FAILED (ничего не импортировано)
+
+    private final Instant startedAt = Instant.now();
+    private volatile Instant finishedAt;
+
+    private final AtomicLong rows = new AtomicLong();     // прочитано строк с задачами
+    private final AtomicLong imported = new AtomicLong(); // записано в БД (до commit в конце импорта не видны)
+    private final AtomicLong skipped = new AtomicLong();  // строки с ошибками
+
+    private final AtomicLong categoriesCreated = new AtomicLong();
+    private final AtomicLong prioritiesCreated = new AtomicLong();
+
+    private final List<String> errors = new CopyOnWriteArrayList<>(); // первые maxErrors ошибок
+    @Getter(AccessLevel.NONE)
+    private final int maxErrors;
+
+    public ImportProgress(String importId, Long userId, int maxErrors) {
+        this.importId = importId;
+        this.userId = userId;
+        this.maxErrors = maxErrors;
+    }
+
+    public void rowSkipped(long line, String message) {
+        skipped.incrementAndGet();
+        if (errors.size() < maxErrors) { // пишет один поток
+            errors.add("line " + line + ": " + message);
+        }
+    }
+
+    public void finish(State state, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.state = state;
+    }
+}
@@ -0,0 +1,58 @@
+package com.dzhatdoev.todo.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * NDJSON: по одному объекту {"title": ..., "completed": ..., "taskDate": ..., "category": ..., "priority": ...} в строке
+ */
+public class NdjsonTaskRowReader extends TaskRowReader {
+
+    private final BufferedReader reader;
+    private final ObjectMapper mapper;
+
+    private long line;
+
+    public NdjsonTaskRowReader(BufferedReader reader, ObjectMapper mapper) {
+        this.reader = reader;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public TaskImportRow next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+
+            JsonNode node;
+            try {
+                node = mapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                throw new InvalidRowException(line, "invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                throw new InvalidRowException(line, "JSON object expected");
+            }
+            return row(line, text(node, "title"), text(node, "completed"), text(node, "taskDate"),
+                    text(node, "category"), text(node, "priority"));
+        }
+        return null;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,21 @@
+package com.dzhatdoev.todo.importer;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+// строка импорта задач: категория и приоритет - по названию (id определяются при импорте)
+public class TaskImportRow {
+
+    private long line; // номер строки во входных данных (для сообщений об ошибках)
+
+    private String title;
+    private boolean completed;
+    private LocalDateTime taskDate;
+    private String category;
+    private String priority;
+
+}
@@ -0,0 +1,78 @@
+package com.dzhatdoev.todo.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Потоковое чтение задач для импорта: строки читаются по одной, в памяти - только текущая
+ */
+public abstract class TaskRowReader implements Closeable {
+
+    public enum Format {CSV, NDJSON}
+
+    // null - данные закончились; InvalidRowException - строка пропускается, чтение можно продолжить
+    public abstract TaskImportRow next() throws IOException;
+
+    // "1"/"0", "true"/"false", "yes"/"no"; пусто - не выполнена
+    protected static boolean parseCompleted(String value, long line) {
+        if (value == null || value.isBlank()) {
+            return false;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "1", "true", "yes", "y" -> true;
+            case "0", "false", "no", "n" -> false;
+            default -> throw new InvalidRowException(line, "completed: " + value);
+        };
+    }
+
+    // 2024-01-31, 2024-01-31T10:00[:00], 2024-01-31T10:00:00+03:00 (переводится в часовой пояс сервера, как и даты из API)
+    protected static LocalDateTime parseDate(String value, long line) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String date = value.trim();
+        try {
+            if (date.length() == 10) {
+                return LocalDate.parse(date).atStartOfDay();
+            }
+            if (date.endsWith("Z") || date.lastIndexOf('+') > 10 || date.lastIndexOf('-') > 10) {
+                return OffsetDateTime.parse(date).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+            return LocalDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRowException(line, "taskDate: " + value);
+        }
+    }
+
+    protected static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    protected static TaskImportRow row(long line, String title, String completed, String taskDate, String category, String priority) {
+        if (title == null || title.isBlank()) {
+            throw new InvalidRowException(line, "missed title");
+        }
+        return new TaskImportRow(line, title.trim(), parseCompleted(completed, line), parseDate(taskDate, line),
+                trimToNull(category), trimToNull(priority));
+    }
+
+    // строку нельзя импортировать (остальные импортируются)
+    public static class InvalidRowException extends RuntimeException {
+
+        private final long line;
+
+        public InvalidRowException(long line, String message) {
+            super(message);
+            this.line = line;
+        }
+
+        public long getLine() {
+            return line;
+        }
+    }
+}
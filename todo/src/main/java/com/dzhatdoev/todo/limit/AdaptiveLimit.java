@@ -0,0 +1,49 @@
+package com.dzhatdoev.todo.limit;
+
+/**
+ * Адаптивный лимит параллельных запросов по наблюдаемой задержке (градиентный алгоритм):
+ * пока задержка близка к минимальной (БД не перегружена), лимит растет на sqrt(limit) - запас для роста нагрузки;
+ * когда задержка растет (запросы ждут в очередях БД и пула соединений), лимит уменьшается пропорционально
+ * minLatency * tolerance / latency. Лимит не растет, если занята меньше половины - иначе он рос бы без нагрузки
+ */
+public class AdaptiveLimit {
+
+    private final LimiterProperties properties;
+
+    private volatile double limit; // меняется в onSample (synchronized), читается без блокировки каждым запросом
+
+    private long minLatency = Long.MAX_VALUE; // минимальная задержка в текущем окне, нс
+    private long previousMinLatency = Long.MAX_VALUE; // из прошлого окна - используется, пока текущее только началось
+    private long windowStart = System.nanoTime();
+
+    public AdaptiveLimit(LimiterProperties properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    // завершился запрос: latency - время выполнения, inflight - сколько запросов выполнялось вместе с ним
+    public synchronized void onSample(long latency, int inflight) {
+        long now = System.nanoTime();
+        if (now - windowStart > properties.getMinLatencyWindow().toNanos()) {
+            previousMinLatency = minLatency;
+            minLatency = Long.MAX_VALUE;
+            windowStart = now;
+        }
+        minLatency = Math.min(minLatency, latency);
+
+        long baseline = Math.min(minLatency, previousMinLatency);
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getTolerance() * baseline / latency));
+
+        if (gradient == 1.0 && inflight < limit / 2) {
+            return; // нагрузка небольшая - нет данных, выдержит ли БД больше
+        }
+
+        double target = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - properties.getSmoothing()) + target * properties.getSmoothing();
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), next));
+    }
+}
@@ -0,0 +1,108 @@
+package com.dzhatdoev.todo.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограничение числа одновременно выполняемых запросов (лимит - AdaptiveLimit).
+ * При замедлении БД лишние запросы сразу получают 503 с Retry-After, а не ждут в очередях потоков Tomcat и пула соединений -
+ * задержка принятых запросов остается нормальной. Чтение (поиск, списки, /dashboard) занимает не больше readShare лимита,
+ * остаток всегда доступен изменениям данных.
+ * Метрики: todo.limiter.limit, todo.limiter.inflight, todo.limiter.rejected{priority=read|write}
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    // окончания URI изменяющих запросов (все запросы сервиса - POST, поэтому метод не подходит)
+    private static final Set<String> WRITE_ACTIONS = Set.of("add", "update", "delete", "patch");
+
+    private final LimiterProperties properties;
+    private final AdaptiveLimit limit;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final Counter rejectedReads;
+    private final Counter rejectedWrites;
+
+    public ConcurrencyLimitFilter(LimiterProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.limit = new AdaptiveLimit(properties);
+
+        Gauge.builder("todo.limiter.limit", limit, AdaptiveLimit::getLimit).register(registry);
+        Gauge.builder("todo.limiter.inflight", inflight, AtomicInteger::get).register(registry);
+        rejectedReads = Counter.builder("todo.limiter.rejected").tag("priority", "read").register(registry);
+        rejectedWrites = Counter.builder("todo.limiter.rejected").tag("priority", "write").register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        // SSE соединение открыто долго и не нагружает БД, actuator нужен и при перегрузке
+        // импорт идет минутами (его задержка исказила бы лимит) и ограничен отдельно - todo.import.max-concurrent
+        return !properties.isEnabled() || uri.startsWith("/events") || uri.startsWith("/actuator") || uri.equals("/task/import");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        boolean write = isWrite(request);
+
+        int current = acquire(write);
+        if (current < 0) {
+            (write ? rejectedWrites : rejectedReads).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, properties.getRetryAfter().toSeconds())));
+            response.getWriter().write("overloaded: retry later");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            inflight.decrementAndGet();
+            limit.onSample(System.nanoTime() - start, current);
+        }
+    }
+
+    // занять место: число выполняющихся запросов вместе с этим или -1, если лимит исчерпан
+    private int acquire(boolean write) {
+        int max = write ? limit.getLimit() : (int) Math.max(1, limit.getLimit() * properties.getReadShare());
+        while (true) {
+            int current = inflight.get();
+            if (current >= max) {
+                return -1;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (method.equals("PUT") || method.equals("DELETE") || method.equals("PATCH")) {
+            return true;
+        }
+        String uri = request.getRequestURI();
+        int slash = uri.lastIndexOf('/');
+        // /task/delete/{id} - действие предпоследнее
+        String last = uri.substring(slash + 1);
+        String previous = slash > 0 ? uri.substring(uri.lastIndexOf('/', slash - 1) + 1, slash) : "";
+        return WRITE_ACTIONS.contains(last) || WRITE_ACTIONS.contains(previous);
+    }
+}
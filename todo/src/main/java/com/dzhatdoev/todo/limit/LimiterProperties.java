@@ -0,0 +1,36 @@
+package com.dzhatdoev.todo.limit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "todo.limiter")
+@Getter
+@Setter
+// настройки адаптивного ограничения параллельных запросов (todo.limiter.* в application.properties)
+public class LimiterProperties {
+
+    private boolean enabled = true;
+
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 150; // меньше потоков Tomcat - часть потоков всегда свободна для отказов 503
+
+    // во сколько раз задержка может превысить минимальную, прежде чем лимит начнет уменьшаться
+    private double tolerance = 2.0;
+
+    // доля лимита для чтения - остаток всегда доступен изменениям (add/update/delete/patch)
+    private double readShare = 0.8;
+
+    private double smoothing = 0.2; // скорость изменения лимита (0..1)
+
+    // минимальная задержка пересчитывается за это окно - после стойкого замедления БД она станет новой нормой
+    private Duration minLatencyWindow = Duration.ofMinutes(1);
+
+    private Duration retryAfter = Duration.ofSeconds(1); // Retry-After в ответе 503
+
+}
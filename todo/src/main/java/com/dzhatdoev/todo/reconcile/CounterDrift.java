@@ -0,0 +1,23 @@
+package com.dzhatdoev.todo.reconcile;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+// расхождение счетчиков категории или статистики пользователя с задачами: stored* - в таблице, actual* - по задачам
+public class CounterDrift {
+
+    public enum Type {CATEGORY, STAT}
+
+    private Type type;
+    private Long id; // id категории или строки статистики
+    private Long userId;
+
+    private Long storedCompleted;
+    private Long storedUncompleted;
+
+    private Long actualCompleted;
+    private Long actualUncompleted;
+
+}
@@ -0,0 +1,53 @@
+package com.dzhatdoev.todo.reconcile;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * GET /actuator/reconcile - отчет текущей или последней сверки счетчиков
+ * POST /actuator/reconcile {"repair": false, "parallelism": 1, "pause": "500ms"} - начать сверку
+ * (не переданные параметры - из todo.reconcile.*); если сверка уже идет - изменить ее parallelism и pause
+ * DELETE /actuator/reconcile - остановить сверку
+ */
+@Component
+@Endpoint(id = "reconcile")
+public class ReconcileEndpoint {
+
+    private final StatReconciliation reconciliation;
+    private final ReconcileProperties properties;
+
+    public ReconcileEndpoint(StatReconciliation reconciliation, ReconcileProperties properties) {
+        this.reconciliation = reconciliation;
+        this.properties = properties;
+    }
+
+    @ReadOperation
+    public ReconcileReport report() {
+        return reconciliation.lastReport();
+    }
+
+    @WriteOperation
+    public ReconcileReport run(@Nullable Boolean repair, @Nullable Integer parallelism, @Nullable Duration pause) {
+        if (parallelism != null && parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (reconciliation.throttle(parallelism, pause)) {
+            return reconciliation.lastReport();
+        }
+        ReconcileReport started = reconciliation.start(repair == null ? properties.isRepair() : repair,
+                parallelism == null ? properties.getParallelism() : parallelism,
+                pause == null ? properties.getPause() : pause);
+        return started == null ? reconciliation.lastReport() : started; // запущена одновременно другим запросом
+    }
+
+    @DeleteOperation
+    public boolean cancel() {
+        return reconciliation.cancel();
+    }
+}
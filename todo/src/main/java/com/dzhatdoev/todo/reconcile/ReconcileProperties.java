@@ -0,0 +1,34 @@
+package com.dzhatdoev.todo.reconcile;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "todo.reconcile")
+@Getter
+@Setter
+// настройки сверки счетчиков категорий и статистики с задачами (todo.reconcile.* в application.properties)
+public class ReconcileProperties {
+
+    private String cron = "-"; // запуск по расписанию ("-" - только вручную, POST /actuator/reconcile)
+
+    private boolean repair = true; // false - только отчет о расхождениях
+
+    private int chunkSize = 100; // пользователей в одной транзакции
+
+    // ограничение нагрузки на БД (можно изменить и во время сверки): сколько порций сверяется одновременно
+    // и пауза после каждой порции в каждом потоке
+    private int parallelism = 2;
+    private Duration pause = Duration.ofMillis(100);
+
+    // сколько порция ждет блокировки счетчиков (их держат изменения задач), и сколько раз повторяется, прежде чем будет пропущена
+    private Duration lockTimeout = Duration.ofSeconds(1);
+    private int attempts = 3;
+
+    private int maxSamples = 100; // сколько расхождений сохраняется в отчете (считаются все)
+
+}
@@ -0,0 +1,62 @@
+package com.dzhatdoev.todo.reconcile;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Getter
+// ход и результат сверки счетчиков (обновляется потоками сверки, читается /actuator/reconcile)
+public class ReconcileReport {
+
+    public enum State {RUNNING, FINISHED, CANCELLED, FAILED}
+
+    private volatile State state = State.RUNNING;
+    private final boolean repair;
+
+    private final Instant startedAt = Instant.now();
+    private volatile Instant finishedAt;
+
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+
+    private final AtomicLong categoryDrift = new AtomicLong();
+    private final AtomicLong statDrift = new AtomicLong();
+
+    // пользователи порций, которые не удалось сверить (счетчики долго были заблокированы) - можно сверить повторно
+    private final List<Long> skippedUserIds = new CopyOnWriteArrayList<>();
+
+    private final List<CounterDrift> samples = new CopyOnWriteArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private final int maxSamples;
+
+    public ReconcileReport(boolean repair, int maxSamples) {
+        this.repair = repair;
+        this.maxSamples = maxSamples;
+    }
+
+    void chunkDone(int users, List<CounterDrift> drift) {
+        this.users.addAndGet(users);
+        chunks.incrementAndGet();
+        for (CounterDrift d : drift) {
+            (d.getType() == CounterDrift.Type.CATEGORY ? categoryDrift : statDrift).incrementAndGet();
+            synchronized (samples) { // списки читаются во время сверки - CopyOnWriteArrayList, проверка размера и добавление вместе
+                if (samples.size() < maxSamples) {
+                    samples.add(d);
+                }
+            }
+        }
+    }
+
+    void chunkSkipped(List<Long> userIds) {
+        skippedUserIds.addAll(userIds);
+    }
+
+    void finish(State state) {
+        this.finishedAt = Instant.now();
+        this.state = state;
+    }
+}
@@ -0,0 +1,234 @@
+package com.dzhatdoev.todo.reconcile;
+
+import com.dzhatdoev.todo.events.TodoEvent;
+import com.dzhatdoev.todo.events.TodoEvents;
+import com.dzhatdoev.todo.repo.CounterReconciler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.java.Log;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+
+/**
+ * Сверка счетчиков категорий и статистики с задачами вместо одного большого update по всем таблицам:
+ * пользователи обрабатываются порциями по todo.reconcile.chunk-size, каждая порция - короткая транзакция
+ * (блокируются только счетчики пользователей порции), несколько порций - параллельно.
+ * Нагрузку ограничивают число потоков и пауза после каждой порции - их можно изменить во время сверки
+ * (POST /actuator/reconcile), чтобы сверка шла в рабочее время, не мешая запросам пользователей.
+ * Расхождения исправляются (todo.reconcile.repair) и попадают в отчет и метрику todo.reconcile.drift
+ */
+@Component
+@Log
+public class StatReconciliation {
+
+    private final ReconcileProperties properties;
+    private final CounterReconciler reconciler;
+    private final TransactionTemplate transactions;
+    private final TodoEvents events;
+
+    private final Counter categoryDrift;
+    private final Counter statDrift;
+
+    private final AtomicReference<Run> running = new AtomicReference<>();
+    private volatile ReconcileReport last;
+
+    public StatReconciliation(ReconcileProperties properties, CounterReconciler reconciler, TransactionTemplate transactions,
+                              TodoEvents events, MeterRegistry registry) {
+        this.properties = properties;
+        this.reconciler = reconciler;
+        this.transactions = transactions;
+        this.events = events;
+        this.categoryDrift = Counter.builder("todo.reconcile.drift").tag("type", "category").register(registry);
+        this.statDrift = Counter.builder("todo.reconcile.drift").tag("type", "stat").register(registry);
+    }
+
+    @Scheduled(cron = "${todo.reconcile.cron:-}")
+    public void scheduled() {
+        if (start(properties.isRepair(), properties.getParallelism(), properties.getPause()) == null) {
+            log.info("Counter reconciliation is already running, scheduled run skipped");
+        }
+    }
+
+    // null - сверка уже идет (изменить ее нагрузку - throttle)
+    public ReconcileReport start(boolean repair, int parallelism, Duration pause) {
+        Run run = new Run(new ReconcileReport(repair, properties.getMaxSamples()), parallelism, pause);
+        if (!running.compareAndSet(null, run)) {
+            return null;
+        }
+        last = run.report;
+
+        Thread thread = new Thread(() -> execute(run), "reconcile");
+        thread.setDaemon(true);
+        thread.start();
+        return run.report;
+    }
+
+    // изменить нагрузку идущей сверки (null - не менять); false - сверка не идет
+    public boolean throttle(Integer parallelism, Duration pause) {
+        Run run = running.get();
+        if (run == null) {
+            return false;
+        }
+        if (parallelism != null) {
+            run.resize(parallelism);
+        }
+        if (pause != null) {
+            run.pause = pause;
+        }
+        return true;
+    }
+
+    // остановить сверку: новые порции не начинаются, начатые завершаются
+    public boolean cancel() {
+        Run run = running.get();
+        if (run == null) {
+            return false;
+        }
+        run.cancelled = true;
+        return true;
+    }
+
+    public ReconcileReport lastReport() {
+        return last;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancel();
+    }
+
+    // поток "reconcile": выбирает пользователей порциями и передает порции потокам сверки
+    private void execute(Run run) {
+        ReconcileReport.State state = ReconcileReport.State.FINISHED;
+        try {
+            long afterId = 0;
+            while (!run.cancelled) {
+                List<Long> userIds = reconciler.findUserIds(afterId, properties.getChunkSize());
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                afterId = userIds.get(userIds.size() - 1);
+                run.executor.execute(() -> chunk(run, userIds)); // ждет свободного потока
+            }
+            if (run.cancelled) {
+                state = ReconcileReport.State.CANCELLED;
+            }
+        } catch (Exception e) {
+            state = ReconcileReport.State.FAILED;
+            log.log(Level.WARNING, "Counter reconciliation failed", e);
+        } finally {
+            run.executor.shutdown();
+            try {
+                run.executor.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            run.report.finish(state);
+            running.set(null);
+            log.info("Counter reconciliation " + state.name().toLowerCase() + ": " + run.report.getUsers() + " users, " +
+                    run.report.getCategoryDrift() + " categories and " + run.report.getStatDrift() + " stats " +
+                    (run.report.isRepair() ? "repaired" : "drifted") + ", " + run.report.getSkippedUserIds().size() + " users skipped");
+        }
+    }
+
+    private void chunk(Run run, List<Long> userIds) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<CounterDrift> drift = transactions.execute(status -> {
+                    List<CounterDrift> found = reconciler.reconcile(userIds, run.report.isRepair(), properties.getLockTimeout());
+                    if (run.report.isRepair()) {
+                        publish(found);
+                    }
+                    return found;
+                });
+                run.report.chunkDone(userIds.size(), drift);
+                for (CounterDrift d : drift) {
+                    (d.getType() == CounterDrift.Type.CATEGORY ? categoryDrift : statDrift).increment();
+                }
+                break;
+            } catch (PessimisticLockingFailureException e) { // счетчики заняты изменениями задач дольше lock-timeout
+                if (attempt >= properties.getAttempts()) {
+                    run.report.chunkSkipped(userIds);
+                    log.warning("Counter reconciliation skipped users " + userIds.get(0) + ".." + userIds.get(userIds.size() - 1) + ": " + e.getMessage());
+                    break;
+                }
+            } catch (RuntimeException e) {
+                run.report.chunkSkipped(userIds);
+                log.log(Level.WARNING, "Counter reconciliation skipped users " + userIds.get(0) + ".." + userIds.get(userIds.size() - 1), e);
+                break;
+            }
+            sleep(run.pause);
+        }
+        sleep(run.pause);
+    }
+
+    // исправленные счетчики - как изменение статистики пользователя (ETag, SSE, другие экземпляры)
+    private void publish(List<CounterDrift> drift) {
+        for (CounterDrift d : drift) {
+            if (d.getType() == CounterDrift.Type.CATEGORY) {
+                events.publish(TodoEvent.Type.CATEGORY, TodoEvent.Action.UPDATED, d.getUserId(), d.getId());
+            } else {
+                events.publish(TodoEvent.Type.STAT, TodoEvent.Action.UPDATED, d.getUserId(), null);
+            }
+        }
+    }
+
+    private static void sleep(Duration pause) {
+        if (pause.isZero() || pause.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // одна сверка: потоки порций и текущие ограничения нагрузки
+    private static class Run {
+
+        private final ReconcileReport report;
+        private final ThreadPoolExecutor executor;
+
+        private volatile Duration pause;
+        private volatile boolean cancelled;
+
+        Run(ReconcileReport report, int parallelism, Duration pause) {
+            this.report = report;
+            this.pause = pause;
+            // без очереди: новая порция передается только свободному потоку, иначе поток "reconcile" ждет -
+            // одновременно сверяется не больше parallelism порций
+            this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    r -> new Thread(r, "reconcile-chunk"), (r, executor) -> {
+                try {
+                    executor.getQueue().put(r);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException(e);
+                }
+            });
+        }
+
+        synchronized void resize(int parallelism) {
+            if (parallelism > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(parallelism);
+                executor.setCorePoolSize(parallelism);
+            } else {
+                executor.setCorePoolSize(parallelism);
+                executor.setMaximumPoolSize(parallelism);
+            }
+        }
+    }
+}
@@ -14,6 +14,17 @@ import java.util.List;
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
+    // текущая версия (для изменения без проверки версии старыми клиентами)
+    @Query("select c.version from Category c where c.id=:id")
+    Long findVersionById(@Param("id") Long id);
+
+    // id и названия категорий пользователя (для автодополнения)
+    @Query("select c.id, c.title from Category c where c.userId=:userId")
+    List<Object[]> findTitles(@Param("userId") Long userId);
+
+    @Query("select c.id, c.title from Category c where c.userId=:userId and c.id in :ids")
+    List<Object[]> findTitles(@Param("userId") Long userId, @Param("ids") List<Long> ids);
+
     // поиск категорий пользователя (по названию)
     List<Category> findByUserIdOrderByTitleAsc(Long id);
 
@@ -0,0 +1,100 @@
+package com.dzhatdoev.todo.repo;
+
+import com.dzhatdoev.todo.reconcile.CounterDrift;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сверка счетчиков категорий (completed_count/uncompleted_count) и статистики (completed_total/uncompleted_total)
+ * с задачами пользователей (вместе с архивом - задачи в архиве продолжают учитываться).
+ * Правила подсчета - как в триггерах todo.add_task/delete_task: выполненная задача - completed = 1, остальные - невыполненные;
+ * в счетчиках категории - только задачи с category_id > 0.
+ * Ошибки блокировок (lock_timeout, deadlock) благодаря @Repository приходят как PessimisticLockingFailureException
+ */
+@Repository
+public class CounterReconciler {
+
+    private static final String CATEGORY_DRIFT = "with actual as (" +
+            "select category_id, count(*) filter (where completed = 1) as completed, count(*) filter (where completed is distinct from 1) as uncompleted" +
+            " from todo.task_with_archive where user_id in (:userIds) and category_id > 0 group by category_id), " +
+            "drift as (" +
+            "select c.id, c.user_id, c.completed_count, c.uncompleted_count," +
+            " coalesce(a.completed, 0) as actual_completed, coalesce(a.uncompleted, 0) as actual_uncompleted" +
+            " from todo.category c left join actual a on a.category_id = c.id" +
+            " where c.user_id in (:userIds)" +
+            " and (c.completed_count is distinct from coalesce(a.completed, 0) or c.uncompleted_count is distinct from coalesce(a.uncompleted, 0)))";
+
+    private static final String CATEGORY_REPAIR = ", repaired as (" +
+            "update todo.category c set completed_count = d.actual_completed, uncompleted_count = d.actual_uncompleted from drift d where c.id = d.id)";
+
+    private static final String STAT_DRIFT = "with actual as (" +
+            "select user_id, count(*) filter (where completed = 1) as completed, count(*) filter (where completed is distinct from 1) as uncompleted" +
+            " from todo.task_with_archive where user_id in (:userIds) group by user_id), " +
+            "drift as (" +
+            "select s.id, s.user_id, s.completed_total, s.uncompleted_total," +
+            " coalesce(a.completed, 0) as actual_completed, coalesce(a.uncompleted, 0) as actual_uncompleted" +
+            " from todo.stat s left join actual a on a.user_id = s.user_id" +
+            " where s.user_id in (:userIds)" +
+            " and (s.completed_total is distinct from coalesce(a.completed, 0) or s.uncompleted_total is distinct from coalesce(a.uncompleted, 0)))";
+
+    private static final String STAT_REPAIR = ", repaired as (" +
+            "update todo.stat s set completed_total = d.actual_completed, uncompleted_total = d.actual_uncompleted from drift d where s.id = d.id)";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    // следующие limit пользователей после afterId (по возрастанию id)
+    @SuppressWarnings("unchecked")
+    public List<Long> findUserIds(long afterId, int limit) {
+        List<Number> rows = em.createNativeQuery("select id from users.user_data where id > :afterId order by id limit :limit")
+                .setParameter("afterId", afterId)
+                .setParameter("limit", limit)
+                .getResultList();
+        return rows.stream().map(Number::longValue).toList();
+    }
+
+    // вызывается в транзакции: счетчики пользователей блокируются до ее конца
+    // repair = false - только найти расхождения
+    public List<CounterDrift> reconcile(List<Long> userIds, boolean repair, Duration lockTimeout) {
+        em.createNativeQuery("select set_config('lock_timeout', :timeout, true)")
+                .setParameter("timeout", lockTimeout.toMillis() + "ms")
+                .getSingleResult();
+
+        // сначала блокируются строки счетчиков (в том же порядке, что и в триггерах: категории, затем статистика) -
+        // пока идет подсчет, изменения задач этих пользователей ждут, и подсчитанные значения не устаревают до записи
+        em.createNativeQuery("select id from todo.category where user_id in (:userIds) order by id for update")
+                .setParameter("userIds", userIds)
+                .getResultList();
+        em.createNativeQuery("select id from todo.stat where user_id in (:userIds) order by id for update")
+                .setParameter("userIds", userIds)
+                .getResultList();
+
+        List<CounterDrift> result = new ArrayList<>();
+        result.addAll(drift(CounterDrift.Type.CATEGORY, CATEGORY_DRIFT + (repair ? CATEGORY_REPAIR : ""), userIds));
+        result.addAll(drift(CounterDrift.Type.STAT, STAT_DRIFT + (repair ? STAT_REPAIR : ""), userIds));
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CounterDrift> drift(CounterDrift.Type type, String with, List<Long> userIds) {
+        List<Object[]> rows = em.createNativeQuery(with + " select * from drift order by id")
+                .setParameter("userIds", userIds)
+                .getResultList();
+
+        List<CounterDrift> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(new CounterDrift(type, ((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                    toLong(row[2]), toLong(row[3]), ((Number) row[4]).longValue(), ((Number) row[5]).longValue()));
+        }
+        return result;
+    }
+
+    private static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+}
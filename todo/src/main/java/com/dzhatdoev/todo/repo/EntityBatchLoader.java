@@ -0,0 +1,66 @@
+package com.dzhatdoev.todo.repo;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Загрузка нескольких объектов пользователя по списку id:
+ * объекты из кеша второго уровня берутся оттуда, оставшиеся загружаются запросами WHERE user_id = ? AND id IN (...)
+ * (по BATCH_SIZE id в запросе) вместо отдельного findById на каждый id.
+ * Условие по user_id нужно, чтобы при секционировании задач по user_id запрос читал только одну секцию
+ */
+@Component
+public class EntityBatchLoader {
+
+    private static final int BATCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    // результат в том же порядке, что и ids; на месте ненайденных - null
+    // (объект из кеша может принадлежать другому пользователю - это проверяет вызывающий код)
+    public <T> List<T> findAllById(Class<T> type, List<Long> ids, Long userId) {
+        Cache cache = em.getEntityManagerFactory().getCache();
+        Map<Object, T> found = new HashMap<>();
+        List<Long> rest = new ArrayList<>();
+
+        for (Long id : ids) {
+            if (cache.contains(type, id)) {
+                found.put(id, em.find(type, id)); // из кеша, без запроса к БД
+            } else {
+                rest.add(id);
+            }
+        }
+
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        for (int from = 0; from < rest.size(); from += BATCH_SIZE) {
+            List<Long> batch = rest.subList(from, Math.min(from + BATCH_SIZE, rest.size()));
+
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<T> query = cb.createQuery(type);
+            Root<T> root = query.from(type);
+            query.where(cb.equal(root.get("userId"), userId), root.get("id").in(batch));
+
+            for (T object : em.createQuery(query).getResultList()) {
+                found.put(util.getIdentifier(object), object);
+            }
+        }
+
+        List<T> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(found.get(id));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package com.dzhatdoev.todo.repo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Частичное изменение объекта одним запросом без предварительного чтения:
+ * UPDATE ... SET (только переданные поля), version = version + 1 WHERE id = ? AND user_id = ? AND version = ?
+ * Только если изменилось 0 строк, выполняется еще один запрос - чтобы отличить отсутствующий объект (NoSuchElementException)
+ * от изменения, которое уже сделал кто-то другой (OptimisticLockingFailureException)
+ */
+@Component
+public class EntityPatcher {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ObjectMapper mapper; // значения из JSON приводятся к типам полей так же, как при разборе сущности
+
+    public EntityPatcher(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    // values - только изменяемые поля; ссылки на справочники (priority, category) передаются как id или null
+    public <T> void patch(Class<T> type, Long id, Long userId, Long version, Map<String, Object> values, Set<String> allowed) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaUpdate<T> update = cb.createCriteriaUpdate(type);
+        Root<T> root = update.from(type);
+        EntityType<T> entity = em.getMetamodel().entity(type);
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String field = entry.getKey();
+            if (!allowed.contains(field)) {
+                throw new IllegalArgumentException("unknown field: " + field);
+            }
+
+            Attribute<? super T, ?> attribute = entity.getAttribute(field);
+            Path<Object> path = root.get(field);
+            Object value = entry.getValue();
+
+            if (value == null) {
+                update.set(path, (Object) null);
+            } else if (attribute.isAssociation()) {
+                Object reference = em.getReference(attribute.getJavaType(), mapper.convertValue(value, Long.class));
+                update.set(path, reference);
+            } else {
+                update.set(path, mapper.convertValue(value, attribute.getJavaType()));
+            }
+        }
+
+        Path<Long> versionPath = root.get("version");
+        update.set(versionPath, cb.sum(versionPath, 1L));
+
+        if (hasAttribute(entity, "modifiedAt")) { // bulk update не вызывает @UpdateTimestamp
+            update.set(root.get("modifiedAt"), new Date());
+        }
+
+        update.where(
+                cb.equal(root.get("id"), id),
+                cb.equal(root.get("userId"), userId),
+                cb.equal(versionPath, version));
+
+        if (em.createQuery(update).executeUpdate() == 0) {
+            if (!exists(type, id, userId)) {
+                throw new NoSuchElementException("id=" + id + " not found");
+            }
+            throw new OptimisticLockingFailureException("version " + version + " is outdated");
+        }
+    }
+
+    private <T> boolean exists(Class<T> type, Long id, Long userId) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(type);
+        query.select(cb.count(root)).where(cb.equal(root.get("id"), id), cb.equal(root.get("userId"), userId));
+        return em.createQuery(query).getSingleResult() > 0;
+    }
+
+    private static boolean hasAttribute(EntityType<?> entity, String name) {
+        return entity.getAttributes().stream().anyMatch(a -> a.getName().equals(name));
+    }
+}
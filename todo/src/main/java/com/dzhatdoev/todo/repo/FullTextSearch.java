@@ -0,0 +1,86 @@
+package com.dzhatdoev.todo.repo;
+
+import com.dzhatdoev.todo.search.SearchHit;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Поиск по названиям задач, категорий и приоритетов пользователя одним запросом (GIN индексы из db/full-text-search.sql):
+ * - каждое слово запроса ищется как начало слова названия (to_tsquery 'слово:*')
+ * - опечатки - через сходство триграмм с любым словом названия (pg_trgm, оператор <%)
+ * Результаты сортируются по релевантности: ts_rank + word_similarity
+ */
+@Component
+public class FullTextSearch {
+
+    public static final Set<String> TYPES = Set.of("task", "category", "priority");
+
+    private static final Map<String, String> TABLES = Map.of(
+            "task", "todo.task",
+            "category", "todo.category",
+            "priority", "todo.priority");
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Value("${todo.search.fuzzy-threshold:0.4}")
+    private double fuzzyThreshold; // от 0 до 1: чем меньше, тем больше опечаток допускается
+
+    // types - только значения из TYPES (название таблицы попадает в текст запроса)
+    // вызывается в транзакции (SearchService) - set_config(..., true) действует до ее конца
+    public List<SearchHit> search(Long userId, String text, Set<String> types, int limit) {
+        String prefixQuery = prefixQuery(text);
+        if (prefixQuery == null) {
+            return List.of();
+        }
+
+        StringJoiner union = new StringJoiner(" union all ");
+        for (String type : types) {
+            union.add("select '" + type + "' as type, id, title," +
+                    " ts_rank(to_tsvector('simple', title), q) + word_similarity(:text, title) as rank" +
+                    " from " + TABLES.get(type) + ", to_tsquery('simple', :query) q" +
+                    " where user_id = :userId and (to_tsvector('simple', title) @@ q or :text <% title)");
+        }
+
+        em.createNativeQuery("select set_config('pg_trgm.word_similarity_threshold', :threshold, true)")
+                .setParameter("threshold", String.valueOf(fuzzyThreshold))
+                .getSingleResult();
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(union + " order by rank desc, title limit :limit")
+                .setParameter("text", text)
+                .setParameter("query", prefixQuery)
+                .setParameter("userId", userId)
+                .setParameter("limit", limit)
+                .getResultList();
+
+        List<SearchHit> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(new SearchHit((String) row[0], ((Number) row[1]).longValue(), (String) row[2], ((Number) row[3]).doubleValue()));
+        }
+        return result;
+    }
+
+    // "buy mi" -> "buy:* & mi:*"; в запрос попадают только буквы и цифры (остальное - разделители слов)
+    private static String prefixQuery(String text) {
+        StringJoiner query = new StringJoiner(" & ");
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            if (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                word.append(text.charAt(i));
+            } else if (!word.isEmpty()) {
+                query.add(word + ":*");
+                word.setLength(0);
+            }
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+}
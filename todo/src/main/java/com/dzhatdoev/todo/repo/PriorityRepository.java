@@ -12,6 +12,17 @@ import java.util.List;
 @Repository
 public interface PriorityRepository extends JpaRepository<Priority, Long> {
 
+    // текущая версия (для изменения без проверки версии старыми клиентами)
+    @Query("select p.version from Priority p where p.id=:id")
+    Long findVersionById(@Param("id") Long id);
+
+    // id и названия приоритетов пользователя (для автодополнения)
+    @Query("select p.id, p.title from Priority p where p.userId=:userId")
+    List<Object[]> findTitles(@Param("userId") Long userId);
+
+    @Query("select p.id, p.title from Priority p where p.userId=:userId and p.id in :ids")
+    List<Object[]> findTitles(@Param("userId") Long userId, @Param("ids") List<Long> ids);
+
     // поиск всех значений данного пользователя
     List<Priority> findByUserIdOrderByIdAsc(Long id);
 
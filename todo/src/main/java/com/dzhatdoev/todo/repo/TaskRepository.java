@@ -4,19 +4,21 @@ import com.dzhatdoev.entities.entity.Task;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 // принцип ООП: абстракция-реализация - здесь описываем все доступные способы доступа к данным
 @Repository
-public interface TaskRepository extends JpaRepository<Task, Long> {
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskRepositoryCustom {
 
-    @SuppressWarnings("JpaQlInspection")
-    @Query("SELECT t FROM Task t where " +
+    // #{#entityName} - тот же запрос используется для поиска вместе с архивом (TaskWithArchiveRepository)
+    String FIND_BY_PARAMS = "SELECT t FROM #{#entityName} t where " +
             "(:title is null or :title='' or lower(t.title) like lower(concat('%', :title,'%'))) and" +
             "(:completed is null or t.completed=:completed) and " +  // учитываем, что параметр может быть null или пустым
             "(:priorityId is null or t.priority.id=:priorityId) and " +
@@ -26,8 +28,10 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
             "(cast(:dateFrom as timestamp) is null or t.taskDate>=:dateFrom) and " +
             "(cast(:dateTo as timestamp) is null or t.taskDate<=:dateTo)" +
             ") and " +
-            "(t.userId=:userId)" // показывать задачи только определенного пользователя, а не все
-    )
+            "(t.userId=:userId)"; // показывать задачи только определенного пользователя, а не все
+
+    @SuppressWarnings("JpaQlInspection")
+    @Query(FIND_BY_PARAMS)
         // искать по всем переданным параметрам (пустые параметры учитываться не будут)
     Page<Task> findByParams(@Param("title") String title,
                             @Param("completed") Boolean completed,
@@ -40,8 +44,72 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
     );
 
 
+    // текущая версия (для изменения без проверки версии старыми клиентами)
+    // во всех запросах к задачам указывается userId - при секционировании по user_id читается только одна секция
+    @Query("select t.version from Task t where t.id=:id and t.userId=:userId")
+    Long findVersionById(@Param("id") Long id, @Param("userId") Long userId);
+
+    // для старых клиентов без userId (просматриваются все секции)
+    @Query("select t.version from Task t where t.id=:id")
+    Long findVersionById(@Param("id") Long id);
+
+    Optional<Task> findByIdAndUserId(Long id, Long userId);
+
     // поиск всех задач конкретного пользователя
     List<Task> findByUserIdOrderByTitleAsc(Long id);
 
+    // время завершения последнего импорта задач пользователя (db/migration/V5), null - импорта не было
+    @Query(value = "select imported_at from todo.task_import where user_id = :userId", nativeQuery = true)
+    Date findImportedAt(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "delete from todo.task_import where imported_at < :before", nativeQuery = true)
+    int deleteImportsOlderThan(@Param("before") Date before);
+
+    // при удалении категории/приоритета БД обнуляет ссылку в задачах - отмечаем такие задачи измененными, чтобы клиенты их получили
+    @Modifying
+    @Query("update Task t set t.modifiedAt=:now, t.version=t.version+1 where t.userId=:userId and t.category.id=:categoryId")
+    int touchByCategoryId(@Param("categoryId") Long categoryId, @Param("userId") Long userId, @Param("now") Date now);
+
+    @Modifying
+    @Query("update Task t set t.modifiedAt=:now, t.version=t.version+1 where t.userId=:userId and t.priority.id=:priorityId")
+    int touchByPriorityId(@Param("priorityId") Long priorityId, @Param("userId") Long userId, @Param("now") Date now);
+
+    // id и названия задач пользователя (для автодополнения - без загрузки задач целиком)
+    @Query("select t.id, t.title from Task t where t.userId=:userId")
+    List<Object[]> findTitles(@Param("userId") Long userId);
+
+    @Query("select t.id, t.title from Task t where t.userId=:userId and t.id in :ids")
+    List<Object[]> findTitles(@Param("userId") Long userId, @Param("ids") List<Long> ids);
+
+    // перенос выполненных задач, не изменявшихся с указанного момента, в архив (не больше chunk задач за раз)
+    // skip locked - задачи, которые сейчас изменяются (или переносит другой экземпляр), будут перенесены в следующий раз
+    // id = any(array(...)) - поиск по первичному ключу в каждой секции; с (id, user_id) in (...) секции читались полностью
+    // возвращает строки (user_id, количество перенесенных задач пользователя) - для событий
+    @Query(value = "with moved as (" +
+            "delete from todo.task where id = any(array(" +
+            "select id from todo.task where completed = 1 and modified_at < :before order by modified_at limit :chunk for update skip locked)) " +
+            "returning *), " +
+            "archived as (insert into todo.task_archive select moved.*, now() from moved) " +
+            "select user_id, count(*) from moved group by user_id", nativeQuery = true)
+    List<Object[]> archive(@Param("before") Date before, @Param("chunk") int chunk);
+
+    // до конца транзакции триггер удаления задачи не уменьшает счетчики (задачи в архиве продолжают учитываться)
+    @Query(value = "select set_config('todo.archiving', 'on', true)", nativeQuery = true)
+    String disableDeleteCounters();
+
+    // вернуть задачу из архива в todo.task (перед изменением или удалением); userId = null - поиск только по id
+    // счетчики не меняются, если перед этим вызван skipAddCounters("on") - задачи в архиве в них уже учтены
+    @Modifying
+    @Query(value = "with restored as (" +
+            "delete from todo.task_archive where id = :id and (cast(:userId as bigint) is null or user_id = :userId) returning *) " +
+            "insert into todo.task (id, title, completed, task_date, priority_id, category_id, user_id, modified_at, version) " +
+            "select id, title, completed, task_date, priority_id, category_id, user_id, modified_at, version from restored", nativeQuery = true)
+    int restore(@Param("id") Long id, @Param("userId") Long userId);
+
+    // on - до конца транзакции (или до вызова с off) триггер добавления задачи не меняет счетчики (db/migration/V4)
+    @Query(value = "select set_config('todo.importing', :value, true)", nativeQuery = true)
+    String skipAddCounters(@Param("value") String value);
+
 
 }
@@ -0,0 +1,37 @@
+package com.dzhatdoev.todo.repo;
+
+import com.dzhatdoev.todo.search.CalendarDay;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// запросы, которые нельзя описать через @Query (реализация - TaskRepositoryImpl, Spring Data подключает ее автоматически)
+public interface TaskRepositoryCustom {
+
+    // поля, которые можно запросить в TaskSearchValues.fields
+    // priorityId/categoryId берутся прямо из внешнего ключа задачи, а priority/category - через join со справочником
+    Set<String> SEARCH_FIELDS = Set.of("id", "title", "completed", "taskDate", "userId", "modifiedAt", "version", "priorityId", "categoryId", "priority", "category", "archived");
+
+    // тот же поиск, что и findByParams, но из БД выбираются только указанные поля (и только нужные join)
+    // includeArchived - искать и среди задач в архиве (todo.task_with_archive)
+    Page<Map<String, Object>> findFieldsByParams(List<String> fields,
+                                                 boolean includeArchived,
+                                                 String title,
+                                                 Boolean completed,
+                                                 Long priorityId,
+                                                 Long categoryId,
+                                                 Long userId,
+                                                 Date dateFrom,
+                                                 Date dateTo,
+                                                 Pageable pageable);
+
+    // количество выполненных и невыполненных задач по дням (в часовом поясе userZone) одним GROUP BY в БД
+    // from/to - границы периода в часовом поясе БД (dbZone), to не включается; groupBy - null, priority или category
+    List<CalendarDay> countByDays(Long userId, LocalDateTime from, LocalDateTime to, String dbZone, String userZone,
+                                  String groupBy, boolean includeArchived);
+}
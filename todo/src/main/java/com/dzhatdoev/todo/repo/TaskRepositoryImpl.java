@@ -0,0 +1,194 @@
+package com.dzhatdoev.todo.repo;
+
+import com.dzhatdoev.entities.entity.Task;
+import com.dzhatdoev.entities.entity.TaskWithArchive;
+import com.dzhatdoev.todo.search.CalendarDay;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// реализация TaskRepositoryCustom через Criteria API - SQL строится динамически под набор запрошенных полей
+public class TaskRepositoryImpl implements TaskRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public Page<Map<String, Object>> findFieldsByParams(List<String> fields, boolean includeArchived, String title, Boolean completed, Long priorityId,
+                                                        Long categoryId, Long userId, Date dateFrom, Date dateTo, Pageable pageable) {
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        // у TaskWithArchive те же поля, что и у Task (+ archived)
+        Class<?> type = includeArchived ? TaskWithArchive.class : Task.class;
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> task = query.from(type);
+
+        // в select попадают только запрошенные столбцы, join со справочниками - только если запрошены сами справочники
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : fields) {
+            switch (field) {
+                case "priorityId" -> selections.add(task.get("priority").get("id").alias(field));
+                case "categoryId" -> selections.add(task.get("category").get("id").alias(field));
+                case "priority" -> {
+                    Join<?, ?> priority = task.join("priority", JoinType.LEFT);
+                    selections.add(priority.get("id").alias("priority.id"));
+                    selections.add(priority.get("title").alias("priority.title"));
+                    selections.add(priority.get("color").alias("priority.color"));
+                }
+                case "category" -> {
+                    Join<?, ?> category = task.join("category", JoinType.LEFT);
+                    selections.add(category.get("id").alias("category.id"));
+                    selections.add(category.get("title").alias("category.title"));
+                    selections.add(category.get("completedCount").alias("category.completedCount"));
+                    selections.add(category.get("uncompletedCount").alias("category.uncompletedCount"));
+                }
+                case "archived" -> selections.add((includeArchived ? task.get(field) : cb.literal(false)).alias(field));
+                default -> selections.add(task.get(field).alias(field));
+            }
+        }
+
+        query.multiselect(selections)
+                .where(predicates(cb, task, title, completed, priorityId, categoryId, userId, dateFrom, dateTo))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), task, cb)); // та же сортировка, что и у обычного поиска
+
+        List<Tuple> rows = em.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        List<Map<String, Object>> content = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            content.add(toMap(row));
+        }
+
+        // count выполняется, только если по размеру страницы нельзя понять общее количество
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> count(cb, type, title, completed, priorityId, categoryId, userId, dateFrom, dateTo));
+    }
+
+    private long count(CriteriaBuilder cb, Class<?> type, String title, Boolean completed, Long priorityId, Long categoryId,
+                       Long userId, Date dateFrom, Date dateTo) {
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<?> task = query.from(type);
+        query.select(cb.count(task)).where(predicates(cb, task, title, completed, priorityId, categoryId, userId, dateFrom, dateTo));
+        return em.createQuery(query).getSingleResult();
+    }
+
+    // те же условия, что и в TaskRepository.findByParams (пустые параметры не учитываются)
+    private Predicate[] predicates(CriteriaBuilder cb, Root<?> task, String title, Boolean completed, Long priorityId,
+                                   Long categoryId, Long userId, Date dateFrom, Date dateTo) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        predicates.add(cb.equal(task.get("userId"), userId)); // показывать задачи только определенного пользователя
+
+        if (title != null && !title.isEmpty()) {
+            predicates.add(cb.like(cb.lower(task.get("title")), "%" + title.toLowerCase() + "%"));
+        }
+        if (completed != null) {
+            predicates.add(cb.equal(task.get("completed"), completed));
+        }
+        if (priorityId != null) {
+            predicates.add(cb.equal(task.get("priority").get("id"), priorityId));
+        }
+        if (categoryId != null) {
+            predicates.add(cb.equal(task.get("category").get("id"), categoryId));
+        }
+        if (dateFrom != null) {
+            predicates.add(cb.greaterThanOrEqualTo(task.get("taskDate"), dateFrom));
+        }
+        if (dateTo != null) {
+            predicates.add(cb.lessThanOrEqualTo(task.get("taskDate"), dateTo));
+        }
+
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    @Override
+    public List<CalendarDay> countByDays(Long userId, LocalDateTime from, LocalDateTime to, String dbZone, String userZone,
+                                         String groupBy, boolean includeArchived) {
+
+        // столбец группировки и таблица выбираются только из известных значений (попадают в текст запроса)
+        String group = groupBy == null ? null : switch (groupBy) {
+            case "priority" -> "priority_id";
+            case "category" -> "category_id";
+            default -> throw new IllegalArgumentException("unknown groupBy: " + groupBy);
+        };
+        String table = includeArchived ? "todo.task_with_archive" : "todo.task";
+
+        // task_date хранится без часового пояса (в часовом поясе БД) - переводим в часовой пояс пользователя и берем дату
+        // условие по task_date - по самому столбцу, чтобы использовался индекс (user_id, task_date)
+        String sql = "select cast((task_date at time zone :dbZone) at time zone :userZone as date) as day" +
+                (group == null ? "" : ", " + group) +
+                ", count(*) filter (where completed = 1), count(*) filter (where completed is distinct from 1)" +
+                " from " + table +
+                " where user_id = :userId and task_date >= :from and task_date < :to" +
+                " group by 1" + (group == null ? "" : ", 2") +
+                " order by 1" + (group == null ? "" : ", 2");
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(sql)
+                .setParameter("dbZone", dbZone)
+                .setParameter("userZone", userZone)
+                .setParameter("userId", userId)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+
+        List<CalendarDay> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long groupId = group == null ? null : (Long) row[1];
+            int counts = group == null ? 1 : 2;
+            result.add(new CalendarDay(
+                    ((java.sql.Date) row[0]).toLocalDate(),
+                    "priority".equals(groupBy) ? groupId : null,
+                    "category".equals(groupBy) ? groupId : null,
+                    ((Number) row[counts]).longValue(),
+                    ((Number) row[counts + 1]).longValue()));
+        }
+        return result;
+    }
+
+    // "priority.title" -> {"priority": {"title": ...}}, чтобы json выглядел так же, как у полной задачи
+    private static Map<String, Object> toMap(Tuple row) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (var element : row.getElements()) {
+            String alias = element.getAlias();
+            Object value = row.get(alias);
+
+            int dot = alias.indexOf('.');
+            if (dot < 0) {
+                result.put(alias, value);
+                continue;
+            }
+
+            String parent = alias.substring(0, dot);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> nested = (Map<String, Object>) result.computeIfAbsent(parent, k -> new LinkedHashMap<String, Object>());
+            nested.put(alias.substring(dot + 1), value);
+        }
+
+        // left join без справочника - отдаем null, как и у полной задачи
+        result.replaceAll((key, value) -> value instanceof Map<?, ?> map && map.get("id") == null ? null : value);
+        return result;
+    }
+}
@@ -0,0 +1,25 @@
+package com.dzhatdoev.todo.repo;
+
+import com.dzhatdoev.entities.entity.TaskTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+// отметки об удаленных задачах (для синхронизации клиентов)
+@Repository
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstone, Long> {
+
+    // id задач пользователя, удаленных после указанного момента
+    @Query("select t.taskId from TaskTombstone t where t.userId=:userId and t.deletedAt>:since")
+    List<Long> findDeletedIds(@Param("userId") Long userId, @Param("since") Date since);
+
+    // удалить старые отметки одним запросом (без загрузки объектов)
+    @Modifying
+    @Query("delete from TaskTombstone t where t.deletedAt<:before")
+    int deleteOlderThan(@Param("before") Date before);
+}
@@ -0,0 +1,35 @@
+package com.dzhatdoev.todo.repo;
+
+import com.dzhatdoev.entities.entity.TaskWithArchive;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+// поиск задач вместе с архивом (TaskSearchValues.includeArchived) и синхронизация (TaskSyncService)
+@Repository
+public interface TaskWithArchiveRepository extends JpaRepository<TaskWithArchive, Long> {
+
+    @SuppressWarnings("JpaQlInspection")
+    @Query(TaskRepository.FIND_BY_PARAMS)
+    Page<TaskWithArchive> findByParams(@Param("title") String title,
+                                       @Param("completed") Boolean completed,
+                                       @Param("priorityId") Long priorityId,
+                                       @Param("categoryId") Long categoryId,
+                                       @Param("userId") Long id,
+                                       @Param("dateFrom") Date dateFrom,
+                                       @Param("dateTo") Date dateTo,
+                                       Pageable pageable
+    );
+
+    // все задачи пользователя (полная синхронизация)
+    List<TaskWithArchive> findByUserIdOrderByTitleAsc(Long userId);
+
+    // задачи пользователя, созданные или измененные после указанного момента (перенос в архив modified_at не меняет)
+    List<TaskWithArchive> findByUserIdAndModifiedAtAfter(Long userId, Date since);
+}
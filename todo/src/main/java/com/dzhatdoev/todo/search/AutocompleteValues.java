@@ -0,0 +1,22 @@
+package com.dzhatdoev.todo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+// параметры автодополнения названий (/task/autocomplete, /category/autocomplete, /priority/autocomplete)
+public class AutocompleteValues {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    private Long userId; // обязательно
+    private String prefix; // начало любого слова названия (без учета регистра)
+    private Integer limit; // сколько подсказок вернуть (null - DEFAULT_LIMIT)
+
+}
@@ -0,0 +1,21 @@
+package com.dzhatdoev.todo.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL) // priorityId/categoryId - только при группировке по ним
+// количество задач за один день (ответ /task/calendar); дни без задач не возвращаются
+public class CalendarDay {
+
+    private LocalDate date;
+    private Long priorityId;
+    private Long categoryId;
+    private long completed;
+    private long uncompleted;
+
+}
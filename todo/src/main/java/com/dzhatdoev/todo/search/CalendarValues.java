@@ -0,0 +1,33 @@
+package com.dzhatdoev.todo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+// параметры /task/calendar - количество задач по дням за период
+public class CalendarValues {
+
+    public static final int MAX_DAYS = 366; // ограничение на длину периода
+    public static final Set<String> GROUP_BY = Set.of("priority", "category");
+
+    private Long userId; // обязательно
+
+    // даты в часовом поясе пользователя (без времени), обе включительно
+    private LocalDate dateFrom;
+    private LocalDate dateTo;
+
+    private String timeZone; // часовой пояс пользователя, например "Europe/Moscow" (null - часовой пояс сервера)
+
+    private String groupBy; // null - только по дням, priority/category - по дням и приоритетам (категориям)
+
+    private Boolean includeArchived; // учитывать и задачи в архиве
+
+}
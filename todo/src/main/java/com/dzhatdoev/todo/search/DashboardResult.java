@@ -0,0 +1,22 @@
+package com.dzhatdoev.todo.search;
+
+import com.dzhatdoev.entities.entity.Category;
+import com.dzhatdoev.entities.entity.Priority;
+import com.dzhatdoev.entities.entity.Stat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+// все данные первого экрана одним ответом (то же, что вернули бы /category/all, /priority/all, /stat и /task/search)
+public class DashboardResult {
+
+    private List<Category> categories;
+    private List<Priority> priorities;
+    private Stat stat;
+    private Page<?> tasks;
+
+}
@@ -0,0 +1,18 @@
+package com.dzhatdoev.todo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+// параметры /dashboard
+public class DashboardValues {
+
+    private Long userId; // обязательно
+    private TaskSearchValues taskSearch; // поиск задач для первого экрана (null - первая страница по названию)
+
+}
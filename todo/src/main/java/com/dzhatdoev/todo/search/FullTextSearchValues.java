@@ -0,0 +1,25 @@
+package com.dzhatdoev.todo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Set;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+// параметры /search - поиск по названиям задач, категорий и приоритетов
+public class FullTextSearchValues {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private Long userId; // обязательно
+    private String text; // слова (или их начало) из названия, допускаются опечатки
+    private Set<String> types; // где искать: task, category, priority (null - везде)
+    private Integer limit; // сколько результатов вернуть (null - DEFAULT_LIMIT)
+
+}
@@ -0,0 +1,22 @@
+package com.dzhatdoev.todo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+// запрос нескольких объектов по списку id
+public class IdsValues {
+
+    public static final int MAX_SIZE = 1000; // ограничение на количество id в одном запросе
+
+    private Long userId; // возвращаются только объекты этого пользователя
+    private List<Long> ids;
+
+}
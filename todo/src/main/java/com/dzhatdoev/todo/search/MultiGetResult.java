@@ -0,0 +1,32 @@
+package com.dzhatdoev.todo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+@Getter
+@AllArgsConstructor
+// результат запроса по списку id: найденные объекты и id, которых нет (или они принадлежат другому пользователю)
+public class MultiGetResult<T> {
+
+    private List<T> found;
+    private List<Long> missing;
+
+    // loaded - результат загрузки в порядке ids (null на месте ненайденных)
+    public static <T> MultiGetResult<T> of(List<Long> ids, List<T> loaded, Predicate<T> visible) {
+        List<T> found = new ArrayList<>(loaded.size());
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            T object = loaded.get(i);
+            if (object != null && visible.test(object)) {
+                found.add(object);
+            } else {
+                missing.add(ids.get(i));
+            }
+        }
+        return new MultiGetResult<>(found, missing);
+    }
+}
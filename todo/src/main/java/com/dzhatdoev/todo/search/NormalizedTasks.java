@@ -0,0 +1,119 @@
+package com.dzhatdoev.todo.search;
+
+import com.dzhatdoev.entities.entity.Category;
+import com.dzhatdoev.entities.entity.Priority;
+import com.dzhatdoev.entities.entity.Task;
+import com.dzhatdoev.entities.entity.TaskWithArchive;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Список задач без повторов справочников (/task/all и /task/search с параметром normalized=true):
+ * в задаче только priorityId/categoryId, а каждый приоритет и категория передаются один раз в priorities/categories.
+ * Для страницы из 100 задач с несколькими разными справочниками ответ меньше и сериализуется быстрее
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL) // данные страницы - только для /task/search
+public class NormalizedTasks {
+
+    private List<NormalizedTask> tasks;
+    private Collection<Priority> priorities;
+    private Collection<Category> categories;
+
+    // постраничность (как в Page)
+    private Long totalElements;
+    private Integer totalPages;
+    private Integer number;
+    private Integer size;
+
+    public static NormalizedTasks of(List<Task> tasks) {
+        Builder builder = new Builder();
+        tasks.forEach(builder::add);
+        return builder.build(null);
+    }
+
+    // страница из Task или TaskWithArchive (поиск вместе с архивом)
+    public static NormalizedTasks of(Page<?> page) {
+        Builder builder = new Builder();
+        for (Object task : page.getContent()) {
+            if (task instanceof TaskWithArchive archived) {
+                builder.add(archived);
+            } else {
+                builder.add((Task) task);
+            }
+        }
+        return builder.build(page);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    // задача со ссылками на справочники по id
+    public static class NormalizedTask {
+
+        private Long id;
+        private String title;
+        private Boolean completed;
+        private Date taskDate;
+        private Long priorityId;
+        private Long categoryId;
+        private Long userId;
+        private Date modifiedAt;
+        private Long version;
+        private Boolean archived; // только при поиске вместе с архивом
+
+    }
+
+    private static class Builder {
+
+        private final List<NormalizedTask> tasks = new ArrayList<>();
+        private final Map<Long, Priority> priorities = new LinkedHashMap<>(); // в порядке первого появления
+        private final Map<Long, Category> categories = new LinkedHashMap<>();
+
+        void add(Task task) {
+            tasks.add(new NormalizedTask(task.getId(), task.getTitle(), task.getCompleted(), task.getTaskDate(),
+                    priorityId(task.getPriority()), categoryId(task.getCategory()),
+                    task.getUserId(), task.getModifiedAt(), task.getVersion(), null));
+        }
+
+        void add(TaskWithArchive task) {
+            tasks.add(new NormalizedTask(task.getId(), task.getTitle(), task.getCompleted(), task.getTaskDate(),
+                    priorityId(task.getPriority()), categoryId(task.getCategory()),
+                    task.getUserId(), task.getModifiedAt(), task.getVersion(), task.getArchived()));
+        }
+
+        private Long priorityId(Priority priority) {
+            if (priority == null) {
+                return null;
+            }
+            priorities.putIfAbsent(priority.getId(), priority);
+            return priority.getId();
+        }
+
+        private Long categoryId(Category category) {
+            if (category == null) {
+                return null;
+            }
+            categories.putIfAbsent(category.getId(), category);
+            return category.getId();
+        }
+
+        NormalizedTasks build(Page<?> page) {
+            return new NormalizedTasks(tasks, priorities.values(), categories.values(),
+                    page == null ? null : page.getTotalElements(),
+                    page == null ? null : page.getTotalPages(),
+                    page == null ? null : page.getNumber(),
+                    page == null ? null : page.getSize());
+        }
+    }
+}
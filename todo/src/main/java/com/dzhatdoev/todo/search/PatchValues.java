@@ -0,0 +1,41 @@
+package com.dzhatdoev.todo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+// тело PATCH запроса: id, userId и version обязательны, остальные поля - только те, которые нужно изменить
+public class PatchValues {
+
+    private Long id;
+    private Long userId;
+    private Long version; // версия, которую клиент видел последней (если объект с тех пор изменился - 409)
+    private Map<String, Object> values; // изменяемые поля (null - очистить значение)
+
+    public static PatchValues from(Map<String, Object> body) {
+        Map<String, Object> values = new HashMap<>(body);
+        return new PatchValues(toLong(values.remove("id")), toLong(values.remove("userId")), toLong(values.remove("version")), values);
+    }
+
+    // первое из обязательных полей, которое передано пустым (null или строка из пробелов), иначе null;
+    // не переданные поля не проверяются - они не меняются
+    public String missed(String... required) {
+        for (String field : required) {
+            if (values.containsKey(field)) {
+                Object value = values.get(field);
+                if (value == null || value instanceof String string && string.trim().length() == 0) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+}
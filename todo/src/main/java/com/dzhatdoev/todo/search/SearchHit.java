@@ -0,0 +1,16 @@
+package com.dzhatdoev.todo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+// результат /search: найденный объект (задача, категория или приоритет) и его релевантность
+public class SearchHit {
+
+    private String type; // task, category, priority
+    private Long id;
+    private String title;
+    private double rank; // чем больше, тем точнее совпадение
+
+}
@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.util.Date;
+import java.util.List;
 
 @Getter
 @Setter
@@ -32,6 +33,13 @@ public class TaskSearchValues {
     private String sortColumn;
     private String sortDirection;
 
+    // какие поля задачи вернуть (например ["id", "title", "completed", "taskDate"]), null - вся задача целиком
+    // из БД выбираются только эти столбцы, join с приоритетом/категорией - только если они запрошены
+    private List<String> fields;
+
+    // искать и среди старых выполненных задач, перенесенных в архив (по умолчанию - только активные задачи)
+    private Boolean includeArchived;
+
     // такие же названия должны быть у объекта на frontend
 
 }
@@ -1,12 +1,21 @@
 package com.dzhatdoev.todo.service;
 
+import com.dzhatdoev.todo.repo.EntityBatchLoader;
+import com.dzhatdoev.todo.repo.EntityPatcher;
 import com.dzhatdoev.todo.repo.CategoryRepository;
+import com.dzhatdoev.todo.repo.TaskRepository;
 import com.dzhatdoev.entities.entity.Category;
+import com.dzhatdoev.todo.events.TodoEvent;
+import com.dzhatdoev.todo.events.TodoEvents;
+import com.dzhatdoev.todo.search.MultiGetResult;
 import jakarta.transaction.Transactional;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 // всегда нужно создавать отдельный класс Service для доступа к данным, даже если кажется,
@@ -22,25 +31,59 @@ public class CategoryService {
     // работает встроенный механизм DI из Spring, который при старте приложения подставит в эту переменную нужные класс-реализацию
     private final CategoryRepository repository; // сервис имеет право обращаться к репозиторию (БД)
 
-    public CategoryService(CategoryRepository repository) {
+    private final TaskRepository taskRepository; // при удалении отмечаем задачи, у которых БД обнулит ссылку
+
+    private final TodoEvents events; // уведомления об изменениях (SSE подписчики, ETag в CategoryController.findAll)
+
+    private final EntityPatcher patcher; // частичное изменение одним UPDATE
+
+    // поля, которые можно изменить через patch
+    private static final Set<String> PATCH_FIELDS = Set.of("title");
+
+    private final EntityBatchLoader loader; // загрузка по списку id
+
+    public CategoryService(CategoryRepository repository, TaskRepository taskRepository, TodoEvents events, EntityPatcher patcher, EntityBatchLoader loader) {
         this.repository = repository;
+        this.taskRepository = taskRepository;
+        this.events = events;
+        this.patcher = patcher;
+        this.loader = loader;
     }
 
-    @Cacheable(cacheNames = "categories")
+    // ключ включает версию списка пользователя (UserDataVersions): после изменения на любом экземпляре версия меняется
+    // и старая запись больше не читается, поэтому срок хранения может быть долгим
+    @Cacheable(cacheNames = "categories", key = "@userDataVersions.cacheKey(#id, 'CATEGORIES')")
     public List<Category> findAll(Long id) {
         return repository.findByUserIdOrderByTitleAsc(id);
     }
 
     public Category add(Category category) {
-        return repository.save(category); // метод save обновляет или создает новый объект, если его не было
+        Category saved = repository.save(category); // метод save обновляет или создает новый объект, если его не было
+        events.publish(TodoEvent.Type.CATEGORY, TodoEvent.Action.CREATED, saved.getUserId(), saved.getId());
+        return saved;
     }
 
     public Category update(Category category) {
-        return repository.save(category); // метод save обновляет или создает новый объект, если его не было
+        if (category.getVersion() == null) { // клиент без поддержки версий - изменение без проверки (как раньше)
+            category.setVersion(repository.findVersionById(category.getId()));
+        }
+        Category saved = repository.save(category); // метод save обновляет или создает новый объект, если его не было
+        events.publish(TodoEvent.Type.CATEGORY, TodoEvent.Action.UPDATED, saved.getUserId(), saved.getId());
+        return saved;
+    }
+
+    // изменить только переданные поля (без чтения объекта), возвращает новую версию
+    public long patch(Long id, Long userId, Long version, Map<String, Object> values) {
+        patcher.patch(Category.class, id, userId, version, values, PATCH_FIELDS);
+        events.publish(TodoEvent.Type.CATEGORY, TodoEvent.Action.UPDATED, userId, id);
+        return version + 1;
     }
 
     public void deleteById(Long id) {
+        Long userId = repository.findById(id).map(Category::getUserId).orElse(null);
+        taskRepository.touchByCategoryId(id, userId, new Date());
         repository.deleteById(id);
+        events.publish(TodoEvent.Type.CATEGORY, TodoEvent.Action.DELETED, userId, id);
     }
 
     // поиск категорий пользователя по названию
@@ -53,5 +96,10 @@ public class CategoryService {
         return repository.findById(id).get(); // т.к. возвращается Optional - можно получить объект методом get()
     }
 
+    // объекты пользователя по списку id (сначала кеш, остальные - запросами IN), ненайденные id - в missing
+    public MultiGetResult<Category> findByIds(List<Long> ids, Long userId) {
+        return MultiGetResult.of(ids, loader.findAllById(Category.class, ids, userId), category -> userId.equals(category.getUserId()));
+    }
+
 
 }
@@ -1,11 +1,21 @@
 package com.dzhatdoev.todo.service;
 
 import com.dzhatdoev.entities.entity.Priority;
+import com.dzhatdoev.todo.repo.EntityBatchLoader;
+import com.dzhatdoev.todo.repo.EntityPatcher;
 import com.dzhatdoev.todo.repo.PriorityRepository;
+import com.dzhatdoev.todo.repo.TaskRepository;
+import com.dzhatdoev.todo.events.TodoEvent;
+import com.dzhatdoev.todo.events.TodoEvents;
+import com.dzhatdoev.todo.search.MultiGetResult;
 import jakarta.transaction.Transactional;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 // всегда нужно создавать отдельный класс Service для доступа к данным, даже если кажется,
 // что мало методов или это все можно реализовать сразу в контроллере
@@ -19,30 +29,69 @@ public class PriorityService {
 
     private final PriorityRepository repository; // сервис имеет право обращаться к репозиторию (БД)
 
-    public PriorityService(PriorityRepository repository) {
+    private final TaskRepository taskRepository; // при удалении отмечаем задачи, у которых БД обнулит ссылку
+
+    private final TodoEvents events; // уведомления об изменениях (SSE подписчики, ETag в PriorityController.findAll)
+
+    private final EntityPatcher patcher; // частичное изменение одним UPDATE
+
+    // поля, которые можно изменить через patch
+    private static final Set<String> PATCH_FIELDS = Set.of("title", "color");
+
+    private final EntityBatchLoader loader; // загрузка по списку id
+
+    public PriorityService(PriorityRepository repository, TaskRepository taskRepository, TodoEvents events, EntityPatcher patcher, EntityBatchLoader loader) {
         this.repository = repository;
+        this.taskRepository = taskRepository;
+        this.events = events;
+        this.patcher = patcher;
+        this.loader = loader;
     }
 
+    // см. CategoryService.findAll
+    @Cacheable(cacheNames = "priorities", key = "@userDataVersions.cacheKey(#id, 'PRIORITIES')")
     public List<Priority> findAll(Long id) {
         return repository.findByUserIdOrderByIdAsc(id);
     }
 
     public Priority add(Priority priority) {
-        return repository.save(priority); // метод save обновляет или создает новый объект, если его не было
+        Priority saved = repository.save(priority); // метод save обновляет или создает новый объект, если его не было
+        events.publish(TodoEvent.Type.PRIORITY, TodoEvent.Action.CREATED, saved.getUserId(), saved.getId());
+        return saved;
     }
 
     public Priority update(Priority priority) {
-        return repository.save(priority); // метод save обновляет или создает новый объект, если его не было
+        if (priority.getVersion() == null) { // клиент без поддержки версий - изменение без проверки (как раньше)
+            priority.setVersion(repository.findVersionById(priority.getId()));
+        }
+        Priority saved = repository.save(priority); // метод save обновляет или создает новый объект, если его не было
+        events.publish(TodoEvent.Type.PRIORITY, TodoEvent.Action.UPDATED, saved.getUserId(), saved.getId());
+        return saved;
+    }
+
+    // изменить только переданные поля (без чтения объекта), возвращает новую версию
+    public long patch(Long id, Long userId, Long version, Map<String, Object> values) {
+        patcher.patch(Priority.class, id, userId, version, values, PATCH_FIELDS);
+        events.publish(TodoEvent.Type.PRIORITY, TodoEvent.Action.UPDATED, userId, id);
+        return version + 1;
     }
 
     public void deleteById(Long id) {
+        Long userId = repository.findById(id).map(Priority::getUserId).orElse(null);
+        taskRepository.touchByPriorityId(id, userId, new Date());
         repository.deleteById(id);
+        events.publish(TodoEvent.Type.PRIORITY, TodoEvent.Action.DELETED, userId, id);
     }
 
     public Priority findById(Long id) {
         return repository.findById(id).get(); // т.к. возвращается Optional - можно получить объект методом get()
     }
 
+    // объекты пользователя по списку id (сначала кеш, остальные - запросами IN), ненайденные id - в missing
+    public MultiGetResult<Priority> findByIds(List<Long> ids, Long userId) {
+        return MultiGetResult.of(ids, loader.findAllById(Priority.class, ids, userId), priority -> userId.equals(priority.getUserId()));
+    }
+
     public List<Priority> find(String title, Long userId) {
         return repository.findByTitle(title, userId);
     }
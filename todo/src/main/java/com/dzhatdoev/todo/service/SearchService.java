@@ -0,0 +1,25 @@
+package com.dzhatdoev.todo.service;
+
+import com.dzhatdoev.todo.repo.FullTextSearch;
+import com.dzhatdoev.todo.search.SearchHit;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+
+// поиск по названиям задач, категорий и приоритетов пользователя (/search)
+@Service
+@Transactional
+public class SearchService {
+
+    private final FullTextSearch fullTextSearch;
+
+    public SearchService(FullTextSearch fullTextSearch) {
+        this.fullTextSearch = fullTextSearch;
+    }
+
+    public List<SearchHit> search(Long userId, String text, Set<String> types, int limit) {
+        return fullTextSearch.search(userId, text, types, limit);
+    }
+}
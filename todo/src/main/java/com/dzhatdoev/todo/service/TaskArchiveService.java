@@ -0,0 +1,81 @@
+package com.dzhatdoev.todo.service;
+
+import com.dzhatdoev.todo.events.TodoEvent;
+import com.dzhatdoev.todo.events.TodoEvents;
+import com.dzhatdoev.todo.repo.TaskRepository;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Перенос старых выполненных задач в архив (todo.task_archive), чтобы таблица и индексы активных задач оставались небольшими.
+ * Задачи переносятся порциями по todo.archive.chunk, каждая порция - в отдельной транзакции: работа, прерванная
+ * на середине (перезапуск, ошибка), просто продолжается при следующем запуске. За один запуск - не больше
+ * todo.archive.max-chunks порций: большой первоначальный архив переносится за несколько запусков, а не занимает
+ * поток планировщика на часы. Несколько экземпляров могут работать
+ * одновременно - задачи, которые уже переносит другой экземпляр, пропускаются (skip locked).
+ * Счетчики категорий и статистика при переносе не меняются - задачи из архива в них учитываются (db/task-archive.sql).
+ * Задача в архиве не только читается (includeArchived): изменение или удаление возвращает ее в todo.task (TaskService).
+ * Пользователи, задачи которых перенесены, получают событие ARCHIVED (автодополнение перестает предлагать эти задачи)
+ */
+@Service
+@Log
+public class TaskArchiveService {
+
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate transactions;
+    private final TodoEvents events;
+
+    @Value("${todo.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${todo.archive.after:90d}")
+    private Duration after; // сколько выполненная задача не изменялась
+
+    @Value("${todo.archive.chunk:1000}")
+    private int chunk;
+
+    @Value("${todo.archive.max-chunks:50}")
+    private int maxChunks; // порций за один запуск
+
+    public TaskArchiveService(TaskRepository taskRepository, TransactionTemplate transactions, TodoEvents events) {
+        this.taskRepository = taskRepository;
+        this.transactions = transactions;
+        this.events = events;
+    }
+
+    @Scheduled(fixedDelayString = "${todo.archive.interval:PT1H}", initialDelayString = "${todo.archive.interval:PT1H}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+
+        Date before = new Date(System.currentTimeMillis() - after.toMillis());
+        long total = 0;
+        long moved;
+        int chunks = 0;
+        do {
+            moved = transactions.execute(status -> {
+                taskRepository.disableDeleteCounters();
+                List<Object[]> users = taskRepository.archive(before, chunk); // (user_id, количество)
+                long count = 0;
+                for (Object[] row : users) {
+                    events.publish(TodoEvent.Type.TASK, TodoEvent.Action.ARCHIVED, ((Number) row[0]).longValue(), null); // после commit
+                    count += ((Number) row[1]).longValue();
+                }
+                return count;
+            });
+            total += moved;
+        } while (moved == chunk && ++chunks < maxChunks);
+
+        if (total > 0) {
+            log.info("Archived " + total + " completed tasks" + (moved == chunk ? ", more left for the next run" : ""));
+        }
+    }
+}
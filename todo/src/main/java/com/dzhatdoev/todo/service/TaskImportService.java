@@ -0,0 +1,256 @@
+package com.dzhatdoev.todo.service;
+
+import com.dzhatdoev.todo.events.TodoEvent;
+import com.dzhatdoev.todo.events.TodoEvents;
+import com.dzhatdoev.todo.importer.CsvTaskRowReader;
+import com.dzhatdoev.todo.importer.ImportProgress;
+import com.dzhatdoev.todo.importer.NdjsonTaskRowReader;
+import com.dzhatdoev.todo.importer.TaskImportRow;
+import com.dzhatdoev.todo.importer.TaskRowReader;
+import com.dzhatdoev.todo.repo.CategoryRepository;
+import com.dzhatdoev.todo.repo.CounterReconciler;
+import com.dzhatdoev.todo.repo.PriorityRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.java.Log;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Импорт большого числа задач пользователя (переход из других планировщиков) одним потоком данных:
+ * строки CSV/NDJSON читаются по мере поступления и порциями по todo.import.batch-size передаются в todo.task командой
+ * copy (протокол COPY драйвера postgresql) - в памяти только текущая порция и названия категорий/приоритетов пользователя.
+ * Перед каждой порцией недостающие категории и приоритеты создаются по названию.
+ * Весь импорт - одна транзакция: при ошибке ничего не импортируется. Триггер добавления задачи в ней не меняет счетчики
+ * (todo.importing, db/migration/V4) - они пересчитываются один раз в конце (CounterReconciler).
+ * У импортированных задач modified_at - начало транзакции, поэтому время завершения импорта записывается в todo.task_import:
+ * клиенты инкрементальной синхронизации с более ранней отметкой получат полный список (db/migration/V5)
+ */
+@Service
+@Log
+public class TaskImportService {
+
+    private static final String COPY_TASKS = "copy todo.task (title, completed, task_date, priority_id, category_id, user_id) from stdin with (format csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactions;
+    private final CategoryRepository categoryRepository;
+    private final PriorityRepository priorityRepository;
+    private final CounterReconciler counterReconciler;
+    private final TodoEvents events;
+    private final ObjectMapper mapper;
+
+    private final Cache<String, ImportProgress> imports; // ход текущих и недавних импортов по importId
+    private final Semaphore running;
+
+    @Value("${todo.import.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${todo.import.max-errors:100}")
+    private int maxErrors;
+
+    @Value("${todo.import.priority-color:#ffffff}")
+    private String priorityColor; // цвет приоритетов, созданных при импорте
+
+    @Value("${todo.import.lock-timeout:30s}")
+    private Duration lockTimeout; // ожидание счетчиков пользователя для пересчета в конце импорта
+
+    public TaskImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactions, CategoryRepository categoryRepository,
+                             PriorityRepository priorityRepository, CounterReconciler counterReconciler, TodoEvents events, ObjectMapper mapper,
+                             @Value("${todo.import.max-concurrent:2}") int maxConcurrent,
+                             @Value("${todo.import.progress-retention:1h}") Duration progressRetention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactions = transactions;
+        this.categoryRepository = categoryRepository;
+        this.priorityRepository = priorityRepository;
+        this.counterReconciler = counterReconciler;
+        this.events = events;
+        this.mapper = mapper;
+        this.running = new Semaphore(maxConcurrent);
+        this.imports = Caffeine.newBuilder().expireAfterWrite(progressRetention).maximumSize(1000).build();
+    }
+
+    public ImportProgress progress(String importId) {
+        return imports.getIfPresent(importId);
+    }
+
+    // null - уже идет todo.import.max-concurrent импортов
+    // IllegalStateException - импорт с этим importId еще идет
+    public ImportProgress importTasks(Long userId, String importId, TaskRowReader.Format format, InputStream in, Charset charset) {
+        if (!running.tryAcquire()) {
+            return null;
+        }
+        try {
+            ImportProgress progress = new ImportProgress(importId, userId, maxErrors);
+            ImportProgress previous = imports.asMap().putIfAbsent(importId, progress);
+            if (previous != null) {
+                if (previous.getState() == ImportProgress.State.RUNNING) {
+                    throw new IllegalStateException("import already running: " + importId);
+                }
+                imports.put(importId, progress);
+            }
+
+            long start = System.currentTimeMillis();
+            try (TaskRowReader reader = reader(format, in, charset)) {
+                transactions.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    copy(connection, reader, progress);
+                    return null;
+                }));
+            } catch (TaskRowReader.InvalidRowException | IOException | UncheckedIOException e) { // данные нельзя прочитать
+                progress.finish(ImportProgress.State.FAILED, e.getMessage());
+                return progress;
+            } catch (RuntimeException e) {
+                progress.finish(ImportProgress.State.FAILED, e.getMessage());
+                throw e;
+            }
+
+            progress.finish(ImportProgress.State.FINISHED, null);
+            log.info("Imported " + progress.getImported() + " tasks for user " + userId + " in " + (System.currentTimeMillis() - start) + " ms, " +
+                    progress.getSkipped() + " rows skipped");
+            return progress;
+        } finally {
+            running.release();
+        }
+    }
+
+    private TaskRowReader reader(TaskRowReader.Format format, InputStream in, Charset charset) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset), 65536);
+        return format == TaskRowReader.Format.CSV ? new CsvTaskRowReader(reader) : new NdjsonTaskRowReader(reader, mapper);
+    }
+
+    // в транзакции импорта
+    private void copy(Connection connection, TaskRowReader reader, ImportProgress progress) throws SQLException {
+        Long userId = progress.getUserId();
+        jdbcTemplate.queryForObject("select set_config('todo.importing', 'on', true)", String.class);
+
+        Map<String, Long> categories = titles(categoryRepository.findTitles(userId));
+        Map<String, Long> priorities = titles(priorityRepository.findTitles(userId));
+
+        try {
+            PGConnection pg = connection.unwrap(PGConnection.class);
+            List<TaskImportRow> batch = new ArrayList<>(batchSize);
+            boolean more = true;
+            while (more) {
+                batch.clear();
+                while (batch.size() < batchSize) {
+                    TaskImportRow row;
+                    try {
+                        row = reader.next();
+                    } catch (TaskRowReader.InvalidRowException e) {
+                        progress.getRows().incrementAndGet();
+                        progress.rowSkipped(e.getLine(), e.getMessage());
+                        continue;
+                    }
+                    if (row == null) {
+                        more = false;
+                        break;
+                    }
+                    progress.getRows().incrementAndGet();
+                    batch.add(row);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                for (TaskImportRow row : batch) { // до copy: пока идет copy, другие команды в соединении не выполняются
+                    if (row.getCategory() != null && !categories.containsKey(row.getCategory())) {
+                        categories.put(row.getCategory(), jdbcTemplate.queryForObject(
+                                "insert into todo.category (title, completed_count, uncompleted_count, user_id) values (?, 0, 0, ?) returning id",
+                                Long.class, row.getCategory(), userId));
+                        progress.getCategoriesCreated().incrementAndGet();
+                    }
+                    if (row.getPriority() != null && !priorities.containsKey(row.getPriority())) {
+                        priorities.put(row.getPriority(), jdbcTemplate.queryForObject(
+                                "insert into todo.priority (title, color, user_id) values (?, ?, ?) returning id",
+                                Long.class, row.getPriority(), priorityColor, userId));
+                        progress.getPrioritiesCreated().incrementAndGet();
+                    }
+                }
+
+                progress.getImported().addAndGet(write(pg, batch, categories, priorities, userId));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        counterReconciler.reconcile(List.of(userId), true, lockTimeout);
+
+        // последней командой транзакции: отметки синхронизации, выданные раньше, приведут к полному списку (TaskSyncService)
+        jdbcTemplate.update("insert into todo.task_import (user_id, imported_at) values (?, clock_timestamp()) " +
+                "on conflict (user_id) do update set imported_at = excluded.imported_at", userId);
+
+        events.publish(TodoEvent.Type.TASK, TodoEvent.Action.CREATED, userId, null); // и STAT
+        if (progress.getCategoriesCreated().get() > 0) {
+            events.publish(TodoEvent.Type.CATEGORY, TodoEvent.Action.CREATED, userId, null);
+        }
+        if (progress.getPrioritiesCreated().get() > 0) {
+            events.publish(TodoEvent.Type.PRIORITY, TodoEvent.Action.CREATED, userId, null);
+        }
+    }
+
+    // одна команда copy на порцию; строки - в формате CSV (null - пустое значение без кавычек)
+    private static long write(PGConnection pg, List<TaskImportRow> batch, Map<String, Long> categories, Map<String, Long> priorities,
+                              Long userId) throws SQLException, IOException {
+        PGCopyOutputStream out = new PGCopyOutputStream(pg, COPY_TASKS, 65536);
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536);
+            for (TaskImportRow row : batch) {
+                writer.write('"');
+                writer.write(row.getTitle().replace("\"", "\"\""));
+                writer.write("\",");
+                writer.write(row.isCompleted() ? "1," : "0,");
+                writer.write(row.getTaskDate() == null ? "" : row.getTaskDate().toString());
+                writer.write(',');
+                writer.write(row.getPriority() == null ? "" : priorities.get(row.getPriority()).toString());
+                writer.write(',');
+                writer.write(row.getCategory() == null ? "" : categories.get(row.getCategory()).toString());
+                writer.write(',');
+                writer.write(userId.toString());
+                writer.write('\n');
+            }
+            writer.flush();
+            return out.endCopy();
+        } catch (IOException | RuntimeException e) {
+            if (out.isActive()) {
+                out.cancelCopy(); // иначе соединение останется в режиме copy и откат транзакции не выполнится
+            }
+            throw e;
+        }
+    }
+
+    // название -> id; при одинаковых названиях - первый найденный
+    private static Map<String, Long> titles(List<Object[]> rows) {
+        Map<String, Long> result = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                result.putIfAbsent((String) row[1], (Long) row[0]);
+            }
+        }
+        return result;
+    }
+}
@@ -1,15 +1,36 @@
 package com.dzhatdoev.todo.service;
 
 import com.dzhatdoev.entities.entity.Task;
+import com.dzhatdoev.entities.entity.TaskTombstone;
+import com.dzhatdoev.entities.entity.TaskWithArchive;
+import com.dzhatdoev.todo.repo.CategoryRepository;
+import com.dzhatdoev.todo.repo.EntityBatchLoader;
+import com.dzhatdoev.todo.repo.EntityPatcher;
+import com.dzhatdoev.todo.repo.PriorityRepository;
 import com.dzhatdoev.todo.repo.TaskRepository;
+import com.dzhatdoev.todo.repo.TaskTombstoneRepository;
+import com.dzhatdoev.todo.repo.TaskWithArchiveRepository;
+import com.dzhatdoev.todo.events.TodoEvent;
+import com.dzhatdoev.todo.events.TodoEvents;
+import com.dzhatdoev.todo.search.CalendarDay;
+import com.dzhatdoev.todo.search.MultiGetResult;
 import jakarta.transaction.Transactional;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
 
 // всегда нужно создавать отдельный класс Service для доступа к данным, даже если кажется,
 // что мало методов или это все можно реализовать сразу в контроллере
@@ -23,35 +44,168 @@ public class TaskService {
 
     private final TaskRepository repository; // сервис имеет право обращаться к репозиторию (БД)
 
-    public TaskService(TaskRepository repository) {
+    private final TaskTombstoneRepository tombstoneRepository; // отметки об удалении для синхронизации клиентов (/task/changes)
+
+    private final TodoEvents events; // уведомления об изменениях (SSE подписчики, ETag статистики и категорий)
+
+    private final EntityPatcher patcher; // частичное изменение одним UPDATE
+
+    // поля, которые можно изменить через patch
+    private static final Set<String> PATCH_FIELDS = Set.of("title", "completed", "taskDate", "priority", "category");
+
+    private final EntityBatchLoader loader; // загрузка по списку id
+
+    // справочники для ссылок из задачи (объекты берутся из кеша второго уровня)
+    private final CategoryRepository categoryRepository;
+    private final PriorityRepository priorityRepository;
+
+    private final TaskWithArchiveRepository withArchiveRepository; // поиск вместе с архивом
+
+    @Value("${todo.calendar.db-time-zone:}")
+    private String dbTimeZone; // в каком часовом поясе хранится task_date (пусто - часовой пояс сервера)
+
+    public TaskService(TaskRepository repository, TaskTombstoneRepository tombstoneRepository, TodoEvents events, EntityPatcher patcher,
+                       EntityBatchLoader loader, CategoryRepository categoryRepository, PriorityRepository priorityRepository,
+                       TaskWithArchiveRepository withArchiveRepository) {
         this.repository = repository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.events = events;
+        this.patcher = patcher;
+        this.loader = loader;
+        this.categoryRepository = categoryRepository;
+        this.priorityRepository = priorityRepository;
+        this.withArchiveRepository = withArchiveRepository;
     }
 
-    @Cacheable(cacheNames = "tasks")
     public List<Task> findAll(Long id) {
         return repository.findByUserIdOrderByTitleAsc(id);
     }
 
     public Task add(Task task) {
-        return repository.save(task); // метод save обновляет или создает новый объект, если его не было
+        attachReferences(task);
+        Task saved = repository.save(task); // метод save обновляет или создает новый объект, если его не было
+        events.publish(TodoEvent.Type.TASK, TodoEvent.Action.CREATED, saved.getUserId(), saved.getId());
+        return saved;
     }
 
     public Task update(Task task) {
-        return repository.save(task); // метод save обновляет или создает новый объект, если его не было
+        if (task.getUserId() == null) { // без userId нельзя ограничить запрос одной секцией - обычный save
+            attachReferences(task);
+            Long version = repository.findVersionById(task.getId());
+            if (version == null && restoreArchived(task.getId(), null)) {
+                version = repository.findVersionById(task.getId());
+            }
+            if (task.getVersion() == null) {
+                task.setVersion(version);
+            }
+            Task saved = repository.save(task); // метод save обновляет или создает новый объект, если его не было
+            events.publish(TodoEvent.Type.TASK, TodoEvent.Action.UPDATED, saved.getUserId(), saved.getId());
+            return saved;
+        }
+
+        if (task.getVersion() == null) { // клиент без поддержки версий - изменение без проверки (как раньше)
+            task.setVersion(repository.findVersionById(task.getId(), task.getUserId()));
+            if (task.getVersion() == null && restoreArchived(task.getId(), task.getUserId())) {
+                task.setVersion(repository.findVersionById(task.getId(), task.getUserId()));
+            }
+            if (task.getVersion() == null) {
+                throw new NoSuchElementException("id=" + task.getId() + " not found");
+            }
+        }
+
+        // все изменяемые поля одним UPDATE ... WHERE id AND user_id AND version (без чтения объекта, как в patch)
+        Map<String, Object> values = new HashMap<>();
+        values.put("title", task.getTitle());
+        values.put("completed", task.getCompleted());
+        values.put("taskDate", task.getTaskDate());
+        values.put("priority", task.getPriority() == null ? null : task.getPriority().getId());
+        values.put("category", task.getCategory() == null ? null : task.getCategory().getId());
+        task.setVersion(patch(task.getId(), task.getUserId(), task.getVersion(), values));
+        return task;
     }
 
-    public void deleteById(Long id) {
-        repository.deleteById(id);
+    // изменить только переданные поля (без чтения объекта), возвращает новую версию
+    public long patch(Long id, Long userId, Long version, Map<String, Object> values) {
+        try {
+            patcher.patch(Task.class, id, userId, version, values, PATCH_FIELDS);
+        } catch (NoSuchElementException e) {
+            if (!restoreArchived(id, userId)) {
+                throw e;
+            }
+            patcher.patch(Task.class, id, userId, version, values, PATCH_FIELDS);
+        }
+        events.publish(TodoEvent.Type.TASK, TodoEvent.Action.UPDATED, userId, id);
+        return version + 1;
+    }
+
+    // userId необязателен (старые клиенты), но с ним поиск задачи идет только в одной секции
+    public void deleteById(Long id, Long userId) {
+        Optional<Task> found = userId == null ? repository.findById(id) : repository.findByIdAndUserId(id, userId);
+        if (found.isEmpty() && restoreArchived(id, userId)) { // удаление из архива - как обычной задачи (отметка, счетчики)
+            found = userId == null ? repository.findById(id) : repository.findByIdAndUserId(id, userId);
+        }
+        Task task = found.orElseThrow(() -> new EmptyResultDataAccessException("id=" + id + " not found", 1));
+
+        tombstoneRepository.save(new TaskTombstone(id, task.getUserId(), new Date()));
+        repository.delete(task); // delete ... where id=? and user_id=? (см. Task.userId)
+        events.publish(TodoEvent.Type.TASK, TodoEvent.Action.DELETED, task.getUserId(), id);
+    }
+
+    // задача из архива, которую изменяют или удаляют, сначала возвращается в todo.task - дальше все как с обычной задачей
+    // (триггеры счетчиков, версия, события); счетчики при возврате не меняются - задачи в архиве в них уже учтены
+    private boolean restoreArchived(Long id, Long userId) {
+        repository.skipAddCounters("on");
+        int restored = repository.restore(id, userId);
+        repository.skipAddCounters("off");
+        return restored > 0;
     }
 
-    @Cacheable(cacheNames = "tasks")
     public Page<Task> findByParams(String text, Boolean completed, Long priorityId, Long categoryId, Long id, Date dateFrom, Date dateTo, PageRequest paging) {
         return repository.findByParams(text, completed, priorityId, categoryId, id, dateFrom, dateTo, paging);
     }
 
+    // поиск вместе с архивом (TaskSearchValues.includeArchived)
+    public Page<TaskWithArchive> findWithArchiveByParams(String text, Boolean completed, Long priorityId, Long categoryId, Long id, Date dateFrom, Date dateTo, PageRequest paging) {
+        return withArchiveRepository.findByParams(text, completed, priorityId, categoryId, id, dateFrom, dateTo, paging);
+    }
+
+    // количество задач по дням за период dateFrom..dateTo (включительно) в часовом поясе пользователя
+    public List<CalendarDay> countByDays(Long userId, LocalDate dateFrom, LocalDate dateTo, ZoneId userZone, String groupBy, boolean includeArchived) {
+        ZoneId dbZone = dbTimeZone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(dbTimeZone);
+
+        // границы периода переводим в часовой пояс БД - в запросе сравнивается сам task_date (по индексу)
+        LocalDateTime from = dateFrom.atStartOfDay(userZone).withZoneSameInstant(dbZone).toLocalDateTime();
+        LocalDateTime to = dateTo.plusDays(1).atStartOfDay(userZone).withZoneSameInstant(dbZone).toLocalDateTime();
+
+        return repository.countByDays(userId, from, to, dbZone.getId(), userZone.getId(), groupBy, includeArchived);
+    }
+
+    // поиск с выбором только нужных полей (см. TaskSearchValues.fields)
+    public Page<Map<String, Object>> findFieldsByParams(List<String> fields, boolean includeArchived, String text, Boolean completed, Long priorityId, Long categoryId, Long id, Date dateFrom, Date dateTo, PageRequest paging) {
+        return repository.findFieldsByParams(fields, includeArchived, text, completed, priorityId, categoryId, id, dateFrom, dateTo, paging);
+    }
+
     public Task findById(Long id) {
         return repository.findById(id).get(); // т.к. возвращается Optional - можно получить объект методом get()
     }
 
+    // объекты пользователя по списку id (сначала кеш, остальные - запросами IN), ненайденные id - в missing
+    public MultiGetResult<Task> findByIds(List<Long> ids, Long userId) {
+        return MultiGetResult.of(ids, loader.findAllById(Task.class, ids, userId), task -> userId.equals(task.getUserId()));
+    }
+
+
 
+    // клиент передает приоритет и категорию только с id (без version) - Hibernate считает такие объекты несохраненными,
+    // поэтому заменяем их объектами из БД
+    private void attachReferences(Task task) {
+        if (task.getCategory() != null) {
+            Long id = task.getCategory().getId();
+            task.setCategory(categoryRepository.findById(id).orElseThrow(() -> new NoSuchElementException("category id=" + id + " not found")));
+        }
+        if (task.getPriority() != null) {
+            Long id = task.getPriority().getId();
+            task.setPriority(priorityRepository.findById(id).orElseThrow(() -> new NoSuchElementException("priority id=" + id + " not found")));
+        }
+    }
 }
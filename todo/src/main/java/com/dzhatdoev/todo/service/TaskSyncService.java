@@ -0,0 +1,79 @@
+package com.dzhatdoev.todo.service;
+
+import com.dzhatdoev.todo.repo.TaskRepository;
+import com.dzhatdoev.todo.repo.TaskTombstoneRepository;
+import com.dzhatdoev.todo.repo.TaskWithArchiveRepository;
+import com.dzhatdoev.todo.sync.TaskChanges;
+import jakarta.transaction.Transactional;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Инкрементальная синхронизация задач: клиент передает отметку (watermark) из прошлого ответа и получает
+ * только задачи, измененные после нее, и id удаленных - объем ответа зависит от числа изменений, а не от числа задач.
+ * Отметка в ответе сдвигается назад на todo.sync.overlap: транзакция, начатая раньше, но завершенная позже запроса,
+ * попадет в следующий ответ (повторно полученные задачи клиент просто перезаписывает).
+ * Импорт задач (TaskImportService) может идти дольше overlap - для отметки, выданной до его завершения, отдается полный список.
+ * Задачи из архива синхронизируются как обычные (todo.task_with_archive): перенос в архив задачу не меняет, поэтому
+ * у клиента она остается, а изменение или удаление задачи из архива приходит как изменение или отметка об удалении
+ */
+@Service
+@Transactional
+@Log
+public class TaskSyncService {
+
+    private final TaskRepository taskRepository;
+    private final TaskTombstoneRepository tombstoneRepository;
+    private final TaskWithArchiveRepository withArchiveRepository;
+
+    @Value("${todo.sync.overlap:5s}")
+    private Duration overlap;
+
+    @Value("${todo.sync.tombstone-retention:30d}")
+    private Duration retention; // для более старой отметки удаления уже неизвестны - отдаем полный список
+
+    public TaskSyncService(TaskRepository taskRepository, TaskTombstoneRepository tombstoneRepository,
+                           TaskWithArchiveRepository withArchiveRepository) {
+        this.taskRepository = taskRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.withArchiveRepository = withArchiveRepository;
+    }
+
+    public TaskChanges changes(Long userId, Long since) {
+        long now = System.currentTimeMillis();
+        long watermark = now - overlap.toMillis();
+
+        if (since == null || since < now - retention.toMillis() || importedAfter(userId, since)) {
+            return new TaskChanges(true, withArchiveRepository.findByUserIdOrderByTitleAsc(userId), List.of(), watermark);
+        }
+
+        Date from = new Date(since);
+        return new TaskChanges(false,
+                withArchiveRepository.findByUserIdAndModifiedAtAfter(userId, from),
+                tombstoneRepository.findDeletedIds(userId, from),
+                watermark);
+    }
+
+    // импортированные задачи отмечены началом транзакции импорта - по отметке раньше его завершения их не найти
+    private boolean importedAfter(Long userId, long since) {
+        Date importedAt = taskRepository.findImportedAt(userId);
+        return importedAt != null && since < importedAt.getTime();
+    }
+
+    // удаление старых отметок об удалении (и времени импорта - более старые отметки синхронизации и так дают полный список)
+    @Scheduled(fixedDelayString = "${todo.sync.purge-interval:PT1H}", initialDelayString = "${todo.sync.purge-interval:PT1H}")
+    public void purgeTombstones() {
+        Date before = new Date(System.currentTimeMillis() - retention.toMillis());
+        int deleted = tombstoneRepository.deleteOlderThan(before);
+        if (deleted > 0) {
+            log.info("Purged " + deleted + " task tombstones");
+        }
+        taskRepository.deleteImportsOlderThan(before);
+    }
+}
@@ -0,0 +1,37 @@
+package com.dzhatdoev.todo.startup;
+
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Тренировочный запуск для CDS (class data sharing) архива.
+ * JVM запускается с -XX:ArchiveClassesAtExit=todo.jsa -Dtodo.cds.training=true, полностью поднимает контекст
+ * и сразу завершается - при выходе JVM записывает архив загруженных классов.
+ * Дальше сервис запускается с -XX:SharedArchiveFile=todo.jsa и не тратит время на загрузку/проверку этих классов.
+ * В архив попадают только классы из обычного classpath, поэтому оба запуска - из распакованного jar, не java -jar
+ * (классы из BOOT-INF/lib загружает LaunchedURLClassLoader, см. fast-start.sh).
+ * Свойство проверяем в момент события, а не через @ConditionalOnProperty, т.к. в AOT режиме условия вычисляются при сборке
+ */
+@Component
+@Log
+public class CdsTrainingListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final boolean training;
+
+    public CdsTrainingListener(@Value("${todo.cds.training:false}") boolean training) {
+        this.training = training;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!training) {
+            return;
+        }
+        log.info("CDS training run finished, exiting so that the JVM dumps the class archive");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
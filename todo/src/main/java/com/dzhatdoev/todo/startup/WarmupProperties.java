@@ -0,0 +1,33 @@
+package com.dzhatdoev.todo.startup;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "todo.warmup")
+@Getter
+@Setter
+// настройки прогрева сервиса перед регистрацией в Eureka (todo.warmup.* в application.properties)
+public class WarmupProperties {
+
+    private boolean enabled = true;
+
+    private int iterations = 100; // сколько раз повторить весь набор запросов
+    private int concurrency = 4; // параллельных потоков - чтобы заодно заполнить пул соединений с БД
+    private Duration timeout = Duration.ofSeconds(30); // после этого времени сервис все равно переходит в UP
+
+    private List<Request> requests = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Request {
+        private String path; // например /task/search
+        private String body; // json тела POST запроса
+    }
+}
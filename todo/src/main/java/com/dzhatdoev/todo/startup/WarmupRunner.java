@@ -0,0 +1,114 @@
+package com.dzhatdoev.todo.startup;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Прогрев нового экземпляра перед тем, как Eureka начнет отправлять на него запросы.
+ * Экземпляр регистрируется в статусе STARTING (eureka.instance.initial-status), затем через настоящий HTTP стек
+ * (Tomcat, Jackson, контроллеры, сервисы, Hibernate) прогоняются запросы из todo.warmup.requests - JIT успевает скомпилировать
+ * горячий код, заполняются пул соединений, кеши и подготовленные запросы. Только после этого статус меняется на UP.
+ * Пока идет прогрев, health тоже сообщает OUT_OF_SERVICE (на случай eureka.client.healthcheck.enabled=true)
+ */
+@Component
+@Log
+public class WarmupRunner implements ApplicationListener<ApplicationReadyEvent>, HealthIndicator {
+
+    private final WarmupProperties properties;
+    private final ObjectProvider<ApplicationInfoManager> eureka;
+
+    private volatile boolean finished;
+
+    public WarmupRunner(WarmupProperties properties, ObjectProvider<ApplicationInfoManager> eureka) {
+        this.properties = properties;
+        this.eureka = eureka;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!properties.isEnabled() || properties.getRequests().isEmpty()) {
+            markUp();
+            return;
+        }
+
+        String port = event.getApplicationContext().getEnvironment().getProperty("local.server.port");
+        Thread thread = new Thread(() -> {
+            try {
+                warmup("http://localhost:" + port);
+            } finally {
+                markUp();
+            }
+        }, "warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void warmup(String baseUrl) {
+        long start = System.currentTimeMillis();
+        AtomicLong failed = new AtomicLong();
+
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getConcurrency());
+
+        for (int i = 0; i < properties.getIterations(); i++) {
+            for (WarmupProperties.Request request : properties.getRequests()) {
+                executor.execute(() -> {
+                    try {
+                        HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + request.getPath()))
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(request.getBody() == null ? "" : request.getBody()))
+                                .build(), HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warning("Warm-up did not finish in " + properties.getTimeout() + ", going UP anyway");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        log.info("Warm-up finished in " + (System.currentTimeMillis() - start) + " ms, "
+                + properties.getIterations() * properties.getRequests().size() + " requests, " + failed.get() + " failed");
+    }
+
+    private void markUp() {
+        finished = true;
+        ApplicationInfoManager manager = eureka.getIfAvailable();
+        if (manager != null) {
+            manager.setInstanceStatus(InstanceInfo.InstanceStatus.UP); // с этого момента Eureka начнет направлять запросы
+        }
+    }
+
+    @Override
+    public Health health() {
+        return finished ? Health.up().build() : Health.outOfService().withDetail("warmup", "in progress").build();
+    }
+}
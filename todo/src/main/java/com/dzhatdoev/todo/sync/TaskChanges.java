@@ -0,0 +1,19 @@
+package com.dzhatdoev.todo.sync;
+
+import com.dzhatdoev.entities.entity.TaskWithArchive;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+// ответ /task/changes: что изменилось у пользователя после переданной отметки
+public class TaskChanges {
+
+    private boolean full; // true - в tasks все задачи пользователя, локальную копию нужно заменить целиком
+    private List<TaskWithArchive> tasks; // созданные и измененные задачи, в т.ч. из архива (archived = true); клиент обновляет их по id
+    private List<Long> deleted; // id удаленных задач
+    private long watermark; // передать в since при следующем запросе
+
+}
@@ -0,0 +1,18 @@
+package com.dzhatdoev.todo.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+// параметры запроса изменений задач
+public class TaskChangesValues {
+
+    private Long userId; // обязательно
+    private Long since; // watermark из предыдущего ответа (null - первая синхронизация, придет полный список)
+
+}
@@ -0,0 +1,223 @@
+package com.dzhatdoev.todo.trace;
+
+import com.dzhatdoev.utils.jfr.ControllerInvocationEvent;
+import com.dzhatdoev.utils.jfr.RepositoryQueryEvent;
+import com.dzhatdoev.utils.jfr.ServiceCallEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * События JFR (из utils) для контроллеров, сервисов и репозиториев - видны в записи, начатой через /actuator/jfr.
+ * Пока запись не идет, event.isEnabled() == false и аспект только вызывает метод (id пользователя, число строк не вычисляются)
+ */
+@Aspect
+@Component
+public class FlightRecorderAspect {
+
+    // getUserId() у аргументов (объекты поиска, сущности) - ищется один раз для каждого класса
+    private static final ClassValue<Method> USER_ID_GETTER = new ClassValue<>() {
+        @Override
+        protected Method computeValue(Class<?> type) {
+            try {
+                Method getter = type.getMethod("getUserId");
+                return Number.class.isAssignableFrom(getter.getReturnType()) || getter.getReturnType() == long.class ? getter : null;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    };
+
+    // пользователь запроса (из аргументов контроллера) - для сервисов и репозиториев, у которых id пользователя в параметре id
+    private static final ThreadLocal<Long> REQUEST_USER_ID = new ThreadLocal<>();
+
+    // пользователь текущего запроса (null - нет или запись не идет) - для передачи в потоки пула
+    public static Long requestUserId() {
+        return REQUEST_USER_ID.get();
+    }
+
+    // выполнить в потоке пула с пользователем запроса, из которого пришла задача (DashboardController);
+    // при CallerRunsPolicy это может быть поток самого запроса - поэтому прежнее значение восстанавливается
+    public static <T> T withRequestUserId(Long userId, Callable<T> call) throws Exception {
+        Long previous = REQUEST_USER_ID.get();
+        if (userId == null || userId.equals(previous)) {
+            return call.call();
+        }
+        REQUEST_USER_ID.set(userId);
+        try {
+            return call.call();
+        } finally {
+            if (previous == null) {
+                REQUEST_USER_ID.remove();
+            } else {
+                REQUEST_USER_ID.set(previous);
+            }
+        }
+    }
+
+    @Around("execution(* com.dzhatdoev.todo.controller..*(..))")
+    public Object controller(ProceedingJoinPoint joinPoint) throws Throwable {
+        ControllerInvocationEvent event = new ControllerInvocationEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        long userId = userId(joinPoint);
+        REQUEST_USER_ID.set(userId);
+
+        event.begin();
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } finally {
+            REQUEST_USER_ID.remove();
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = methodName(joinPoint);
+                event.endpoint = endpoint();
+                event.userId = userId;
+                event.rows = rows(result);
+                event.commit();
+            }
+        }
+    }
+
+    @Around("execution(* com.dzhatdoev.todo.service..*(..))")
+    public Object service(ProceedingJoinPoint joinPoint) throws Throwable {
+        ServiceCallEvent event = new ServiceCallEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        event.begin();
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+                event.method = methodName(joinPoint);
+                event.transactional = transactional(method) || transactional(joinPoint.getTarget().getClass());
+                event.userId = userId(joinPoint);
+                event.rows = rows(result);
+                event.commit();
+            }
+        }
+    }
+
+    @Around("execution(* com.dzhatdoev.todo.repo..*(..)) || this(org.springframework.data.repository.Repository)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        event.begin();
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = methodName(joinPoint);
+                event.userId = userId(joinPoint);
+                event.rows = rows(result);
+                event.commit();
+            }
+        }
+    }
+
+    // сервисы отмечены jakarta.transaction.Transactional, но учитывается и аннотация Spring
+    private static boolean transactional(AnnotatedElement element) {
+        return AnnotatedElementUtils.hasAnnotation(element, jakarta.transaction.Transactional.class)
+                || AnnotatedElementUtils.hasAnnotation(element, Transactional.class);
+    }
+
+    // у репозиториев Spring Data объект - SimpleJpaRepository, поэтому берется интерфейс репозитория из прокси
+    private static String methodName(ProceedingJoinPoint joinPoint) {
+        String method = joinPoint.getSignature().getName();
+        for (Class<?> type : joinPoint.getThis().getClass().getInterfaces()) {
+            if (type.getName().startsWith("com.dzhatdoev.todo.repo.")) {
+                return type.getSimpleName() + "." + method;
+            }
+        }
+        return joinPoint.getTarget().getClass().getSimpleName() + "." + method;
+    }
+
+    private static String endpoint() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            return request.getMethod() + " " + request.getRequestURI();
+        }
+        return null;
+    }
+
+    // параметр userId, getUserId() первого аргумента, у которого он есть, или пользователь запроса; 0 - не найден
+    private static long userId(ProceedingJoinPoint joinPoint) {
+        String[] names = ((MethodSignature) joinPoint.getSignature()).getParameterNames();
+        Object[] args = joinPoint.getArgs();
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null) {
+                continue;
+            }
+            if (arg instanceof Number number && names != null && "userId".equals(names[i])) {
+                return number.longValue();
+            }
+            Method getter = USER_ID_GETTER.get(arg.getClass());
+            if (getter != null) {
+                try {
+                    Object value = getter.invoke(arg);
+                    if (value != null) {
+                        return ((Number) value).longValue();
+                    }
+                } catch (ReflectiveOperationException ignored) {
+                }
+            }
+        }
+        Long requestUserId = REQUEST_USER_ID.get();
+        return requestUserId == null ? 0 : requestUserId;
+    }
+
+    // строк в результате: списки, страницы, Optional, число измененных строк (update/delete); -1 - неизвестно
+    private static int rows(Object result) {
+        if (result instanceof ResponseEntity<?> entity) {
+            result = entity.getBody();
+        }
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Integer count) {
+            return count;
+        }
+        return -1;
+    }
+}
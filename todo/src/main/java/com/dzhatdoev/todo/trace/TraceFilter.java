@@ -0,0 +1,55 @@
+package com.dzhatdoev.todo.trace;
+
+import com.dzhatdoev.utils.trace.TraceContext;
+import com.dzhatdoev.utils.trace.Tracer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Корневой span запроса: продолжает трассировку из заголовка traceparent (его добавляет gateway)
+ * или начинает новую. Стоит перед ConcurrencyLimitFilter - отказы 503 тоже видны в /actuator/traces
+ */
+@Component
+@ConditionalOnProperty(name = "trace.enabled", matchIfMissing = true)
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class TraceFilter extends OncePerRequestFilter {
+
+    private final Tracer tracer;
+
+    public TraceFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        // SSE соединение длится часами, actuator - служебные запросы
+        return uri.startsWith("/events") || uri.startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        TraceContext parent = TraceContext.parse(request.getHeader(TraceContext.HEADER));
+
+        try (Tracer.Scope scope = tracer.startRoot(request.getMethod() + " " + request.getRequestURI(), parent)) {
+            response.setHeader(TraceContext.TRACE_ID_HEADER, scope.getContext().getTraceId());
+            try {
+                chain.doFilter(request, response);
+            } catch (IOException | ServletException | RuntimeException e) {
+                scope.error(e);
+                throw e;
+            } finally {
+                scope.tag("status", String.valueOf(response.getStatus()));
+            }
+        }
+    }
+}
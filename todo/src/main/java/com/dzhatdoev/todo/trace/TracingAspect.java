@@ -0,0 +1,55 @@
+package com.dzhatdoev.todo.trace;
+
+import com.dzhatdoev.utils.trace.Tracer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Вложенные span для контроллеров, сервисов и обращений к БД (репозитории Spring Data и классы пакета repo) -
+ * по ним видно, сколько времени запроса ушло на SQL, а сколько на остальную обработку.
+ * Те же методы контроллеров, что измеряет LoggingAspect, плюс слои под ними
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "trace.enabled", matchIfMissing = true)
+public class TracingAspect {
+
+    private final Tracer tracer;
+
+    public TracingAspect(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Around("execution(* com.dzhatdoev.todo.controller..*(..))" +
+            " || execution(* com.dzhatdoev.todo.service..*(..))" +
+            " || execution(* com.dzhatdoev.todo.repo..*(..))" +
+            " || this(org.springframework.data.repository.Repository)")
+    public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Tracer.Scope scope = tracer.startChild(spanName(joinPoint, signature));
+        if (scope == null) { // вне запроса (задачи по расписанию, события)
+            return joinPoint.proceed();
+        }
+
+        try (scope) {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            scope.error(e);
+            throw e;
+        }
+    }
+
+    // у репозиториев Spring Data объект - SimpleJpaRepository, поэтому берется интерфейс репозитория из прокси
+    private static String spanName(ProceedingJoinPoint joinPoint, MethodSignature signature) {
+        for (Class<?> type : joinPoint.getThis().getClass().getInterfaces()) {
+            if (type.getName().startsWith("com.dzhatdoev.todo.repo.")) {
+                return type.getSimpleName() + "." + signature.getName();
+            }
+        }
+        return joinPoint.getTarget().getClass().getSimpleName() + "." + signature.getName();
+    }
+}
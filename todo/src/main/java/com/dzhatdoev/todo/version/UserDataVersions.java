@@ -0,0 +1,90 @@
+package com.dzhatdoev.todo.version;
+
+import com.dzhatdoev.todo.events.TodoEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Версии редко меняющихся данных пользователя (категории, приоритеты, статистика) для условных запросов.
+ * Версия увеличивается при каждом изменении (TodoEvents - после commit, в т.ч. на других экземплярах), текущая версия отдается клиенту как ETag.
+ * Если клиент прислал в If-None-Match тот же ETag - отвечаем 304 без тела и без обращения к БД.
+ * В ETag входит случайный номер экземпляра - после перезапуска все старые ETag перестают совпадать.
+ * В ETag входит и id пользователя: запрос один (POST с id в теле), и версии разных пользователей могут совпадать -
+ * без id клиент, сменивший пользователя, получил бы 304 с данными предыдущего.
+ * Число счетчиков ограничено (todo.versions.max-size). Вытесненный счетчик начнется заново с 0 и мог бы совпасть
+ * со старым ETag, поэтому каждое вытеснение увеличивает epoch, который тоже входит в ETag
+ */
+@Component
+public class UserDataVersions {
+
+    public enum Collection {CATEGORIES, PRIORITIES, STAT}
+
+    private final String instance = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final Cache<Key, AtomicLong> versions;
+    private final AtomicLong global = new AtomicLong(); // изменение без известного пользователя сбрасывает ETag у всех
+    private final AtomicLong epoch = new AtomicLong(); // количество вытесненных счетчиков
+
+    public UserDataVersions(@Value("${todo.versions.max-size:100000}") long maxSize) {
+        // evictionListener вызывается синхронно, до того как счетчик пропадет из кеша
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .evictionListener((Key key, AtomicLong version, RemovalCause cause) -> epoch.incrementAndGet())
+                .build();
+    }
+
+    public void onEvent(TodoEvent event) {
+        switch (event.getType()) {
+            case CATEGORY -> bump(event.getUserId(), Collection.CATEGORIES);
+            case PRIORITY -> bump(event.getUserId(), Collection.PRIORITIES);
+            // счетчики в категориях и статистике меняются триггерами в БД при изменении задач
+            case TASK, STAT -> bump(event.getUserId(), Collection.CATEGORIES, Collection.STAT);
+        }
+    }
+
+    public void bump(Long userId, Collection... collections) {
+        if (userId == null) {
+            global.incrementAndGet();
+            return;
+        }
+        for (Collection collection : collections) {
+            versions.get(new Key(userId, collection), k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public String etag(Long userId, Collection collection) {
+        AtomicLong version = versions.getIfPresent(new Key(userId, collection));
+        // epoch читается после счетчика: если счетчика уже нет, epoch к этому моменту увеличен
+        return "\"" + userId + "-" + instance + "-" + global.get() + "-" + epoch.get() + "-" + (version == null ? 0 : version.get()) + "\"";
+    }
+
+    // ключ для кеша списков (см. CategoryService.findAll) - меняется вместе с версией;
+    // id пользователя - отдельное поле ключа, записи разных пользователей не совпадают при любых версиях
+    public Object cacheKey(Long userId, String collection) {
+        return new CacheKey(userId, etag(userId, Collection.valueOf(collection)));
+    }
+
+    // ETag вычисляется до чтения данных - если данные изменятся во время чтения, следующий запрос все равно получит новую версию
+    public <T> ResponseEntity<T> conditional(Long userId, Collection collection, String ifNoneMatch, Supplier<T> body) {
+        String etag = etag(userId, collection);
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(body.get());
+    }
+
+    private record Key(Long userId, Collection collection) {
+    }
+
+    private record CacheKey(Long userId, String version) {
+    }
+}
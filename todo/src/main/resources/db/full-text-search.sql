@@ -0,0 +1,19 @@
+-- полнотекстовый и нечеткий поиск по названиям (/search)
+-- индексы по выражениям обновляются самим Postgres в той же транзакции, что и данные
+-- (в т.ч. при изменениях триггерами и массовых update) - отдельная синхронизация и переиндексация не нужны
+
+create extension if not exists pg_trgm;   -- триграммы: нечеткое сравнение (<%), регистр не учитывается
+create extension if not exists btree_gin; -- user_id в том же GIN индексе - читаются только строки пользователя
+
+-- конфигурация simple - без стемминга, одинаково работает для названий на любом языке
+-- триграммный индекс - по title, а не по lower(title): иначе планировщик выбирает его и для старого поиска
+-- lower(title) like '%x%', где для пользователя с небольшим числом строк индекс по user_id заметно быстрее
+
+create index task_title_fts_idx on todo.task using gin (user_id, to_tsvector('simple', title));
+create index task_title_trgm_idx on todo.task using gin (user_id, title gin_trgm_ops);
+
+create index category_title_fts_idx on todo.category using gin (user_id, to_tsvector('simple', title));
+create index category_title_trgm_idx on todo.category using gin (user_id, title gin_trgm_ops);
+
+create index priority_title_fts_idx on todo.priority using gin (user_id, to_tsvector('simple', title));
+create index priority_title_trgm_idx on todo.priority using gin (user_id, title gin_trgm_ops);
@@ -0,0 +1,220 @@
+-- схема todo на момент перехода на миграции Flyway: исходные таблицы и триггеры счетчиков
+-- плюс изменения из db/*.sql (optimistic-locking, task-changes, task-partitioning, task-archive, full-text-search).
+-- Выполняется только на пустой БД; в существующей БД (скрипты db/*.sql уже применены вручную)
+-- Flyway отмечает эту версию как выполненную (spring.flyway.baseline-on-migrate) и применяет только следующие.
+-- Имена индексов и ограничений todo.task - как после секционирования (task_new_*), чтобы новые и старые БД не отличались
+
+-- schema public: search_path миграций - todo (spring.flyway.default-schema), а приложения - public
+create extension if not exists pg_trgm schema public;
+create extension if not exists btree_gin schema public;
+
+create schema if not exists users;
+create schema if not exists todo;
+
+
+create table users.user_data
+(
+    id           bigserial primary key,
+    email        text not null,
+    username     text not null,
+    userpassword text not null
+);
+
+
+create table todo.category
+(
+    id                bigserial primary key,
+    title             text   not null,
+    completed_count   bigint          default 0,
+    uncompleted_count bigint          default 0,
+    user_id           bigint not null references users.user_data (id) on delete cascade,
+    version           bigint not null default 0
+);
+
+create table todo.priority
+(
+    id      bigserial primary key,
+    title   text   not null,
+    color   text   not null,
+    user_id bigint not null references users.user_data (id) on delete cascade,
+    version bigint not null default 0
+);
+
+create table todo.stat
+(
+    id                bigserial primary key,
+    completed_total   bigint default 0,
+    uncompleted_total bigint default 0,
+    user_id           bigint not null unique references users.user_data (id) on delete cascade
+);
+
+
+-- задачи секционированы по user_id: все запросы приложения содержат условие user_id = ? (см. db/task-partitioning.sql)
+create table todo.task
+(
+    id          bigserial,
+    title       text      not null,
+    completed   smallint           default 0,
+    task_date   timestamp,
+    priority_id bigint,
+    category_id bigint,
+    user_id     bigint    not null,
+    modified_at timestamp not null default now(),
+    version     bigint    not null default 0,
+    constraint task_new_pkey primary key (id, user_id),
+    constraint task_new_priority_id_fkey foreign key (priority_id) references todo.priority (id) on delete set null,
+    constraint task_new_category_id_fkey foreign key (category_id) references todo.category (id) on delete set null,
+    constraint task_new_user_id_fkey foreign key (user_id) references users.user_data (id) on delete cascade
+) partition by hash (user_id);
+
+do
+$$
+    begin
+        for i in 0..15
+            loop
+                execute format('create table todo.task_p%s partition of todo.task for values with (modulus 16, remainder %s)', i, i);
+            end loop;
+    end
+$$;
+
+create index task_new_user_id_title_idx on todo.task (user_id, title);
+create index task_new_user_id_task_date_idx on todo.task (user_id, task_date);
+create index task_new_user_id_modified_at_idx on todo.task (user_id, modified_at);
+create index task_new_user_id_category_id_idx on todo.task (user_id, category_id);
+create index task_new_user_id_priority_id_idx on todo.task (user_id, priority_id);
+create index task_completed_modified_at_idx on todo.task (modified_at) where completed = 1;
+
+
+-- удаленные задачи для /task/changes
+create table todo.task_tombstone
+(
+    task_id    bigint primary key,
+    user_id    bigint    not null,
+    deleted_at timestamp not null default now()
+);
+
+create index task_tombstone_user_id_deleted_at_idx on todo.task_tombstone (user_id, deleted_at);
+create index task_tombstone_deleted_at_idx on todo.task_tombstone (deleted_at);
+
+
+-- архив выполненных задач: те же столбцы в том же порядке, что и в todo.task, плюс archived_at (см. db/task-archive.sql)
+create table todo.task_archive
+(
+    id          bigint primary key,
+    title       text      not null,
+    completed   smallint,
+    task_date   timestamp,
+    priority_id bigint references todo.priority (id) on delete set null,
+    category_id bigint references todo.category (id) on delete set null,
+    user_id     bigint    not null references users.user_data (id) on delete cascade,
+    modified_at timestamp not null,
+    version     bigint    not null,
+    archived_at timestamp not null default now()
+);
+
+create index task_archive_user_id_title_idx on todo.task_archive (user_id, title);
+create index task_archive_user_id_task_date_idx on todo.task_archive (user_id, task_date);
+
+create view todo.task_with_archive as
+select id, title, completed, task_date, priority_id, category_id, user_id, modified_at, version, false as archived
+from todo.task
+union all
+select id, title, completed, task_date, priority_id, category_id, user_id, modified_at, version, true as archived
+from todo.task_archive;
+
+
+-- поиск по названиям (/search, см. db/full-text-search.sql)
+create index task_title_fts_idx on todo.task using gin (user_id, to_tsvector('simple', title));
+create index task_title_trgm_idx on todo.task using gin (user_id, title gin_trgm_ops);
+create index category_title_fts_idx on todo.category using gin (user_id, to_tsvector('simple', title));
+create index category_title_trgm_idx on todo.category using gin (user_id, title gin_trgm_ops);
+create index priority_title_fts_idx on todo.priority using gin (user_id, to_tsvector('simple', title));
+create index priority_title_trgm_idx on todo.priority using gin (user_id, title gin_trgm_ops);
+
+
+-- счетчики выполненных/невыполненных задач в категориях и общей статистике пользователя
+create function todo.add_task() returns trigger
+    language plpgsql
+as
+$$
+begin
+    if coalesce(new.category_id, 0) > 0 then
+        if new.completed = 1 then
+            update todo.category set completed_count = completed_count + 1 where id = new.category_id;
+        else
+            update todo.category set uncompleted_count = uncompleted_count + 1 where id = new.category_id;
+        end if;
+    end if;
+
+    if new.completed = 1 then
+        update todo.stat set completed_total = completed_total + 1 where user_id = new.user_id;
+    else
+        update todo.stat set uncompleted_total = uncompleted_total + 1 where user_id = new.user_id;
+    end if;
+
+    return new;
+end
+$$;
+
+create function todo.delete_task() returns trigger
+    language plpgsql
+as
+$$
+begin
+    if coalesce(old.category_id, 0) > 0 then
+        if old.completed = 1 then
+            update todo.category set completed_count = completed_count - 1 where id = old.category_id;
+        else
+            update todo.category set uncompleted_count = uncompleted_count - 1 where id = old.category_id;
+        end if;
+    end if;
+
+    if old.completed = 1 then
+        update todo.stat set completed_total = completed_total - 1 where user_id = old.user_id;
+    else
+        update todo.stat set uncompleted_total = uncompleted_total - 1 where user_id = old.user_id;
+    end if;
+
+    return old;
+end
+$$;
+
+create function todo.update_task() returns trigger
+    language plpgsql
+as
+$$
+begin
+    if coalesce(old.category_id, 0) > 0 then
+        if old.completed = 1 then
+            update todo.category set completed_count = completed_count - 1 where id = old.category_id;
+        else
+            update todo.category set uncompleted_count = uncompleted_count - 1 where id = old.category_id;
+        end if;
+    end if;
+
+    if coalesce(new.category_id, 0) > 0 then
+        if new.completed = 1 then
+            update todo.category set completed_count = completed_count + 1 where id = new.category_id;
+        else
+            update todo.category set uncompleted_count = uncompleted_count + 1 where id = new.category_id;
+        end if;
+    end if;
+
+    if old.completed <> new.completed then
+        if new.completed = 1 then
+            update todo.stat set completed_total = completed_total + 1, uncompleted_total = uncompleted_total - 1 where user_id = new.user_id;
+        else
+            update todo.stat set completed_total = completed_total - 1, uncompleted_total = uncompleted_total + 1 where user_id = new.user_id;
+        end if;
+    end if;
+
+    return new;
+end
+$$;
+
+create trigger add_task_trigger after insert on todo.task for each row execute function todo.add_task();
+create trigger update_task_trigger after update of category_id, completed on todo.task for each row execute function todo.update_task();
+-- при переносе в архив (todo.archiving = on) счетчики не уменьшаются - задачи в архиве продолжают учитываться
+create trigger delete_task_trigger after delete on todo.task for each row
+    when (current_setting('todo.archiving', true) is distinct from 'on')
+execute function todo.delete_task();
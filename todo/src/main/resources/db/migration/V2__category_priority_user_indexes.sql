@@ -0,0 +1,18 @@
+-- индексы под запросы CategoryRepository и PriorityRepository: все выборки - по user_id с сортировкой по title
+-- (findByUserIdOrderByTitleAsc, findByTitle, findTitles); GIN индексы поиска по названию для них не подходят.
+-- Индексы по category_id/priority_id архива - для on delete set null при удалении категории/приоритета
+-- (без них каждое удаление просматривает весь архив).
+-- concurrently - без блокировки изменений таблиц на время построения (миграция выполняется вне транзакции);
+-- прерванное построение оставляет недействительный индекс - поэтому сначала drop (при повторном запуске после ошибки)
+
+drop index concurrently if exists todo.category_user_id_title_idx;
+create index concurrently category_user_id_title_idx on todo.category (user_id, title);
+
+drop index concurrently if exists todo.priority_user_id_title_idx;
+create index concurrently priority_user_id_title_idx on todo.priority (user_id, title);
+
+drop index concurrently if exists todo.task_archive_category_id_idx;
+create index concurrently task_archive_category_id_idx on todo.task_archive (category_id) where category_id is not null;
+
+drop index concurrently if exists todo.task_archive_priority_id_idx;
+create index concurrently task_archive_priority_id_idx on todo.task_archive (priority_id) where priority_id is not null;
@@ -0,0 +1,90 @@
+-- индексы по category_id/priority_id задач - для on delete set null при удалении категории/приоритета:
+-- внешний ключ ищет задачи только по category_id (без user_id), индексы (user_id, category_id) для этого не подходят
+-- и каждое удаление просматривало бы все секции.
+-- Секционированную таблицу нельзя индексировать concurrently: индекс создается только у родителя (on only, пока недействителен),
+-- индексы секций строятся concurrently (без блокировки изменений) и присоединяются - после последней секции индекс действителен.
+-- Выполняется вне транзакции (spring.flyway.mixed=true); при повторном запуске уже созданные индексы пропускаются.
+-- Если построение индекса секции прервано, он остается недействительным (pg_index.indisvalid = false) - его нужно удалить до повторного запуска
+
+create index if not exists task_category_id_idx on only todo.task (category_id) where category_id is not null;
+create index if not exists task_priority_id_idx on only todo.task (priority_id) where priority_id is not null;
+
+create index concurrently if not exists task_p0_category_id_idx on todo.task_p0 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p0_category_id_idx;
+create index concurrently if not exists task_p0_priority_id_idx on todo.task_p0 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p0_priority_id_idx;
+
+create index concurrently if not exists task_p1_category_id_idx on todo.task_p1 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p1_category_id_idx;
+create index concurrently if not exists task_p1_priority_id_idx on todo.task_p1 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p1_priority_id_idx;
+
+create index concurrently if not exists task_p2_category_id_idx on todo.task_p2 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p2_category_id_idx;
+create index concurrently if not exists task_p2_priority_id_idx on todo.task_p2 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p2_priority_id_idx;
+
+create index concurrently if not exists task_p3_category_id_idx on todo.task_p3 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p3_category_id_idx;
+create index concurrently if not exists task_p3_priority_id_idx on todo.task_p3 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p3_priority_id_idx;
+
+create index concurrently if not exists task_p4_category_id_idx on todo.task_p4 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p4_category_id_idx;
+create index concurrently if not exists task_p4_priority_id_idx on todo.task_p4 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p4_priority_id_idx;
+
+create index concurrently if not exists task_p5_category_id_idx on todo.task_p5 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p5_category_id_idx;
+create index concurrently if not exists task_p5_priority_id_idx on todo.task_p5 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p5_priority_id_idx;
+
+create index concurrently if not exists task_p6_category_id_idx on todo.task_p6 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p6_category_id_idx;
+create index concurrently if not exists task_p6_priority_id_idx on todo.task_p6 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p6_priority_id_idx;
+
+create index concurrently if not exists task_p7_category_id_idx on todo.task_p7 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p7_category_id_idx;
+create index concurrently if not exists task_p7_priority_id_idx on todo.task_p7 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p7_priority_id_idx;
+
+create index concurrently if not exists task_p8_category_id_idx on todo.task_p8 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p8_category_id_idx;
+create index concurrently if not exists task_p8_priority_id_idx on todo.task_p8 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p8_priority_id_idx;
+
+create index concurrently if not exists task_p9_category_id_idx on todo.task_p9 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p9_category_id_idx;
+create index concurrently if not exists task_p9_priority_id_idx on todo.task_p9 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p9_priority_id_idx;
+
+create index concurrently if not exists task_p10_category_id_idx on todo.task_p10 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p10_category_id_idx;
+create index concurrently if not exists task_p10_priority_id_idx on todo.task_p10 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p10_priority_id_idx;
+
+create index concurrently if not exists task_p11_category_id_idx on todo.task_p11 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p11_category_id_idx;
+create index concurrently if not exists task_p11_priority_id_idx on todo.task_p11 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p11_priority_id_idx;
+
+create index concurrently if not exists task_p12_category_id_idx on todo.task_p12 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p12_category_id_idx;
+create index concurrently if not exists task_p12_priority_id_idx on todo.task_p12 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p12_priority_id_idx;
+
+create index concurrently if not exists task_p13_category_id_idx on todo.task_p13 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p13_category_id_idx;
+create index concurrently if not exists task_p13_priority_id_idx on todo.task_p13 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p13_priority_id_idx;
+
+create index concurrently if not exists task_p14_category_id_idx on todo.task_p14 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p14_category_id_idx;
+create index concurrently if not exists task_p14_priority_id_idx on todo.task_p14 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p14_priority_id_idx;
+
+create index concurrently if not exists task_p15_category_id_idx on todo.task_p15 (category_id) where category_id is not null;
+alter index todo.task_category_id_idx attach partition todo.task_p15_category_id_idx;
+create index concurrently if not exists task_p15_priority_id_idx on todo.task_p15 (priority_id) where priority_id is not null;
+alter index todo.task_priority_id_idx attach partition todo.task_p15_priority_id_idx;
@@ -0,0 +1,7 @@
+-- импорт задач (TaskImportService, copy в todo.task) пересчитывает счетчики категорий и статистики один раз в конце -
+-- пока в транзакции импорта установлено todo.importing = on, триггер добавления задачи их не изменяет
+drop trigger add_task_trigger on todo.task;
+
+create trigger add_task_trigger after insert on todo.task for each row
+    when (current_setting('todo.importing', true) is distinct from 'on')
+execute function todo.add_task();
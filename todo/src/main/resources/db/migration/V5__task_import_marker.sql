@@ -0,0 +1,8 @@
+-- время завершения последнего импорта задач пользователя (TaskImportService): у импортированных задач modified_at -
+-- начало транзакции импорта, которая может идти дольше todo.sync.overlap. Клиент синхронизации, получивший отметку
+-- во время импорта, не увидел бы этих задач как измененных - для отметки раньше imported_at /task/changes отдает полный список
+create table todo.task_import
+(
+    user_id     bigint    not null primary key references users.user_data (id) on delete cascade,
+    imported_at timestamp not null
+);
@@ -0,0 +1,32 @@
+-- callback Flyway перед baseline (spring.flyway.baseline-on-migrate): версия 1 отмечается выполненной без выполнения V1,
+-- поэтому в БД уже должна быть вся схема V1 (скрипты db/*.sql применены вручную). Иначе (другая БД в datasource.url,
+-- применены не все скрипты) старт прерывается - следующие миграции и приложение на такой схеме работали бы с ошибками
+do
+$$
+    declare
+        missed text[] := '{}';
+    begin
+        if to_regclass('todo.task') is null then
+            missed := missed || 'todo.task'::text;
+        elsif not exists(select 1 from pg_partitioned_table where partrelid = 'todo.task'::regclass) then
+            missed := missed || 'todo.task partitioning (db/task-partitioning.sql)'::text;
+        elsif not exists(select 1 from information_schema.columns where table_schema = 'todo' and table_name = 'task' and column_name = 'version') then
+            missed := missed || 'todo.task.version (db/optimistic-locking.sql)'::text;
+        end if;
+        if to_regclass('todo.task_tombstone') is null then
+            missed := missed || 'todo.task_tombstone (db/task-changes.sql)'::text;
+        end if;
+        if to_regclass('todo.task_archive') is null then
+            missed := missed || 'todo.task_archive (db/task-archive.sql)'::text;
+        end if;
+        if to_regclass('todo.task_title_fts_idx') is null then
+            missed := missed || 'todo.task_title_fts_idx (db/full-text-search.sql)'::text;
+        end if;
+
+        if cardinality(missed) > 0 then
+            raise exception 'database is not empty but does not match schema version 1, baseline refused; missing: %',
+                array_to_string(missed, ', ')
+                using hint = 'apply the db/*.sql scripts or point spring.datasource.url to an empty database';
+        end if;
+    end
+$$;
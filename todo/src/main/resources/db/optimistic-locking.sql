@@ -0,0 +1,5 @@
+-- версии для оптимистической блокировки (@Version) и PATCH запросов
+
+alter table todo.task add column version bigint not null default 0;
+alter table todo.category add column version bigint not null default 0;
+alter table todo.priority add column version bigint not null default 0;
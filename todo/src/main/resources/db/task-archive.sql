@@ -0,0 +1,36 @@
+-- архив старых выполненных задач (переносит TaskArchiveService)
+-- обычный поиск работает только с todo.task, поиск с includeArchived - с представлением todo.task_with_archive
+
+-- те же столбцы и в том же порядке, что и в todo.task (перенос выполняется через select *),
+-- новые столбцы задач нужно добавлять и сюда - перед archived_at
+create table todo.task_archive
+(
+    like todo.task including constraints
+);
+
+alter table todo.task_archive add column archived_at timestamp not null default now();
+alter table todo.task_archive add primary key (id);
+
+create index task_archive_user_id_title_idx on todo.task_archive (user_id, title);
+create index task_archive_user_id_task_date_idx on todo.task_archive (user_id, task_date);
+
+alter table todo.task_archive add foreign key (priority_id) references todo.priority (id) on delete set null;
+alter table todo.task_archive add foreign key (category_id) references todo.category (id) on delete set null;
+alter table todo.task_archive add foreign key (user_id) references users.user_data (id) on delete cascade;
+
+-- выбор задач для переноса без чтения всей таблицы
+create index task_completed_modified_at_idx on todo.task (modified_at) where completed = 1;
+
+-- задачи в архиве продолжают учитываться в счетчиках категорий и статистике:
+-- при переносе (todo.archiving = on в транзакции переноса) триггер удаления счетчики не уменьшает
+drop trigger delete_task_trigger on todo.task;
+create trigger delete_task_trigger after delete on todo.task for each row
+    when (current_setting('todo.archiving', true) is distinct from 'on')
+execute function todo.delete_task();
+
+create view todo.task_with_archive as
+select id, title, completed, task_date, priority_id, category_id, user_id, modified_at, version, false as archived
+from todo.task
+union all
+select id, title, completed, task_date, priority_id, category_id, user_id, modified_at, version, true as archived
+from todo.task_archive;
@@ -0,0 +1,17 @@
+-- отслеживание изменений задач для /task/changes
+
+alter table todo.task add column modified_at timestamp not null default now();
+
+-- выборка изменений пользователя после отметки синхронизации
+create index task_user_id_modified_at_idx on todo.task (user_id, modified_at);
+
+-- удаленные задачи (записи старше todo.sync.tombstone-retention удаляются приложением)
+create table todo.task_tombstone
+(
+    task_id    bigint primary key,
+    user_id    bigint    not null,
+    deleted_at timestamp not null default now()
+);
+
+create index task_tombstone_user_id_deleted_at_idx on todo.task_tombstone (user_id, deleted_at);
+create index task_tombstone_deleted_at_idx on todo.task_tombstone (deleted_at);
@@ -0,0 +1,119 @@
+-- секционирование задач по user_id (hash, 16 секций)
+-- все запросы приложения к todo.task содержат условие user_id = ? (см. Task.userId, TaskRepository) -
+-- Postgres отбрасывает лишние секции и читает индексы только одной секции.
+-- Единственное исключение - старый /task/id (поиск только по id) - он просматривает индексы всех секций.
+--
+-- Миграция без долгой блокировки:
+-- 1) создать todo.task_new (этот файл, шаг 1)
+-- 2) скопировать данные порциями: call todo.copy_task_partitioned(50000); (можно прерывать и запускать повторно)
+-- 3) короткое переключение в одной транзакции (шаг 3) - докопировать изменения, переименовать таблицы, перенести триггеры
+-- 4) после проверки: drop table todo.task_old;
+
+
+-- шаг 1: секционированная таблица с теми же столбцами и значениями по умолчанию (в т.ч. nextval для id)
+create table todo.task_new
+(
+    like todo.task including defaults including constraints
+) partition by hash (user_id);
+
+-- в секционированной таблице ключ должен включать user_id; уникальность id обеспечивает последовательность
+alter table todo.task_new add primary key (id, user_id);
+
+do
+$$
+    begin
+        for i in 0..15
+            loop
+                execute format('create table todo.task_p%s partition of todo.task_new for values with (modulus 16, remainder %s)', i, i);
+            end loop;
+    end
+$$;
+
+-- индексы создаются во всех секциях; во всех первый столбец - user_id
+create index task_new_user_id_title_idx on todo.task_new (user_id, title);
+create index task_new_user_id_task_date_idx on todo.task_new (user_id, task_date);
+create index task_new_user_id_modified_at_idx on todo.task_new (user_id, modified_at);
+create index task_new_user_id_category_id_idx on todo.task_new (user_id, category_id);
+create index task_new_user_id_priority_id_idx on todo.task_new (user_id, priority_id);
+
+alter table todo.task_new add foreign key (priority_id) references todo.priority (id) on delete set null;
+alter table todo.task_new add foreign key (category_id) references todo.category (id) on delete set null;
+alter table todo.task_new add foreign key (user_id) references users.user_data (id) on delete cascade;
+
+-- время начала копирования - с него докопируются изменения при переключении
+create table todo.task_partitioning
+(
+    copy_started timestamp not null
+);
+
+
+-- шаг 2: копирование порциями по id, commit после каждой порции (триггеров на task_new нет - счетчики не меняются)
+create procedure todo.copy_task_partitioned(batch int)
+    language plpgsql
+as
+$$
+declare
+    last_id bigint;
+    max_id  bigint;
+begin
+    if not exists(select 1 from todo.task_partitioning) then
+        insert into todo.task_partitioning values (now());
+        commit;
+    end if;
+
+    select coalesce(max(id), 0) into last_id from todo.task_new; -- продолжаем с места остановки
+    select coalesce(max(id), 0) into max_id from todo.task;
+
+    while last_id < max_id
+        loop
+            insert into todo.task_new
+            select * from todo.task where id > last_id and id <= last_id + batch;
+
+            last_id := last_id + batch;
+            commit;
+        end loop;
+end
+$$;
+
+
+-- шаг 3: переключение (выполнять одной транзакцией после copy_task_partitioned)
+/*
+begin;
+
+lock table todo.task in exclusive mode; -- чтение продолжает работать, изменения ждут конца транзакции
+
+-- задачи, добавленные или измененные во время копирования (@UpdateTimestamp и patch всегда меняют modified_at)
+insert into todo.task_new
+select * from todo.task
+where id > (select coalesce(max(id), 0) from todo.task_new)
+   or modified_at >= (select copy_started from todo.task_partitioning)
+on conflict (id, user_id) do update
+    set title       = excluded.title,
+        completed   = excluded.completed,
+        task_date   = excluded.task_date,
+        priority_id = excluded.priority_id,
+        category_id = excluded.category_id,
+        modified_at = excluded.modified_at,
+        version     = excluded.version;
+
+-- задачи, удаленные во время копирования
+delete from todo.task_new n where not exists(select 1 from todo.task t where t.id = n.id and t.user_id = n.user_id);
+
+alter sequence todo.task_id_seq owned by todo.task_new.id;
+
+drop trigger add_task_trigger on todo.task;
+drop trigger delete_task_trigger on todo.task;
+drop trigger update_task_trigger on todo.task;
+
+alter table todo.task rename to task_old;
+alter table todo.task_new rename to task;
+
+create trigger add_task_trigger after insert on todo.task for each row execute function todo.add_task();
+create trigger delete_task_trigger after delete on todo.task for each row execute function todo.delete_task();
+create trigger update_task_trigger after update of category_id, completed on todo.task for each row execute function todo.update_task();
+
+drop procedure todo.copy_task_partitioned(int);
+drop table todo.task_partitioning;
+
+commit;
+*/
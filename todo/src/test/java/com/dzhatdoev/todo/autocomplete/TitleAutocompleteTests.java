@@ -0,0 +1,56 @@
+package com.dzhatdoev.todo.autocomplete;
+
+import com.dzhatdoev.todo.events.TodoEvent;
+import com.dzhatdoev.todo.repo.CategoryRepository;
+import com.dzhatdoev.todo.repo.PriorityRepository;
+import com.dzhatdoev.todo.repo.TaskRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// события, пришедшие во время загрузки индекса из БД, не теряются
+class TitleAutocompleteTests {
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final TitleAutocomplete autocomplete = new TitleAutocomplete(taskRepository, mock(CategoryRepository.class),
+            mock(PriorityRepository.class), DataSize.ofMegabytes(1));
+
+    @Test
+    void changeDuringLoadIsReadAfterLoad() {
+        when(taskRepository.findTitles(1L)).thenAnswer(invocation -> {
+            // задача 2 создана после того, как запрос загрузки прочитал данные
+            autocomplete.onEvent(new TodoEvent(TodoEvent.Type.TASK, TodoEvent.Action.CREATED, 1L, 2L));
+            return rows(1L, "milk");
+        });
+        when(taskRepository.findTitles(1L, List.of(2L))).thenReturn(rows(2L, "milk bread"));
+
+        assertEquals(List.of(1L, 2L), ids(autocomplete.find(1L, TitleAutocomplete.Kind.TASK, "milk", 10)));
+    }
+
+    @Test
+    void indexLoadedDuringUnknownChangeIsNotKept() {
+        when(taskRepository.findTitles(1L)).thenAnswer(invocation -> {
+            autocomplete.onEvent(new TodoEvent(TodoEvent.Type.TASK, TodoEvent.Action.ARCHIVED, 1L, null));
+            return rows(1L, "milk");
+        }).thenReturn(List.of());
+
+        assertEquals(List.of(1L), ids(autocomplete.find(1L, TitleAutocomplete.Kind.TASK, "milk", 10)));
+        assertTrue(autocomplete.find(1L, TitleAutocomplete.Kind.TASK, "milk", 10).isEmpty()); // загружен заново
+        verify(taskRepository, times(2)).findTitles(1L);
+    }
+
+    private static List<Object[]> rows(Long id, String title) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{id, title});
+        return rows;
+    }
+
+    private static List<Long> ids(List<TitleMatch> matches) {
+        return matches.stream().map(TitleMatch::getId).toList();
+    }
+}
@@ -0,0 +1,50 @@
+package com.dzhatdoev.todo.autocomplete;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleIndexTests {
+
+    private final TitleIndex index = TitleIndex.of(Map.of(
+            1L, "Buy oat milk",
+            2L, "Call Bob",
+            3L, "Milk the cow (again)",
+            4L, "buy-back shares"));
+
+    @Test
+    void findsByStartOfAnyWordIgnoringCase() {
+        assertEquals(Set.of(1L, 3L), ids(index.find("MIL", 10)));
+        assertEquals(Set.of(1L, 4L), ids(index.find("buy", 10)));
+        assertEquals(Set.of(4L), ids(index.find("back", 10)));
+        assertEquals(Set.of(3L), ids(index.find("again", 10)));
+        assertEquals(Set.of(1L), ids(index.find("buy oat", 10))); // префикс из нескольких слов
+        assertTrue(index.find("ilk", 10).isEmpty()); // середина слова не ищется
+    }
+
+    @Test
+    void returnsEachObjectOnceUpToLimit() {
+        TitleIndex repeated = TitleIndex.of(Map.of(1L, "milk milk milk", 2L, "milk"));
+        assertEquals(2, repeated.find("milk", 10).size());
+        assertEquals(1, repeated.find("milk", 1).size());
+    }
+
+    @Test
+    void withAppliesChangesWithoutModifyingOriginal() {
+        TitleIndex changed = index.with(Map.of(2L, "Call Alice", 5L, "Bake bread"), List.of(1L));
+
+        assertEquals(Set.of(2L), ids(changed.find("alice", 10)));
+        assertEquals(Set.of(5L), ids(changed.find("bread", 10)));
+        assertEquals(Set.of(4L), ids(changed.find("buy", 10)));
+        assertEquals(Set.of(1L, 4L), ids(index.find("buy", 10)));
+        assertEquals("Call Alice", changed.find("call", 10).get(0).getTitle());
+    }
+
+    private static Set<Long> ids(List<TitleMatch> matches) {
+        return Set.copyOf(matches.stream().map(TitleMatch::getId).toList());
+    }
+}
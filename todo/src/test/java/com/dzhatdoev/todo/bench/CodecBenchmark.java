@@ -0,0 +1,118 @@
+package com.dzhatdoev.todo.bench;
+
+import com.dzhatdoev.entities.entity.Category;
+import com.dzhatdoev.entities.entity.Priority;
+import com.dzhatdoev.entities.entity.Task;
+import com.dzhatdoev.todo.search.NormalizedTasks;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Сравнение JSON / CBOR / Smile на типичном ответе /task/search (страница из 100 задач с приоритетом и категорией),
+ * а также обычного и нормализованного (NormalizedTasks, без повторов справочников) JSON.
+ * Это не тест (не запускается в mvn test), запуск вручную:
+ * mvn test-compile exec:java -Dexec.mainClass=com.dzhatdoev.todo.bench.CodecBenchmark -Dexec.classpathScope=test
+ */
+public class CodecBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        List<Task> tasks = tasks(100);
+
+        bench("json ", Jackson2ObjectMapperBuilder.json().build(), tasks);
+        bench("cbor ", Jackson2ObjectMapperBuilder.cbor().build(), tasks);
+        bench("smile", Jackson2ObjectMapperBuilder.smile().build(), tasks);
+
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        encode("json           ", json, tasks);
+        encode("json normalized", json, NormalizedTasks.of(tasks)); // в т.ч. время преобразования - см. ниже
+        encode("normalize+json ", json, null, tasks);
+    }
+
+    // только сериализация (нормализованный ответ обратно в задачи не разбирается)
+    private static void encode(String name, ObjectMapper mapper, Object value) throws Exception {
+        encode(name, mapper, value, null);
+    }
+
+    // tasks != null - в каждой итерации сначала строится NormalizedTasks (как в контроллере)
+    private static void encode(String name, ObjectMapper mapper, Object value, List<Task> tasks) throws Exception {
+        byte[] bytes = null;
+        for (int i = 0; i < WARMUP; i++) { // прогрев JIT
+            bytes = mapper.writeValueAsBytes(tasks == null ? value : NormalizedTasks.of(tasks));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            bytes = mapper.writeValueAsBytes(tasks == null ? value : NormalizedTasks.of(tasks));
+        }
+        long encode = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("%s size=%6d bytes  encode=%7d ns%n", name, bytes.length, encode);
+    }
+
+    private static void bench(String name, ObjectMapper mapper, List<Task> tasks) throws Exception {
+        TypeReference<List<Task>> type = new TypeReference<>() {
+        };
+        byte[] bytes = mapper.writeValueAsBytes(tasks);
+
+        for (int i = 0; i < WARMUP; i++) { // прогрев JIT
+            mapper.readValue(mapper.writeValueAsBytes(tasks), type);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            bytes = mapper.writeValueAsBytes(tasks);
+        }
+        long encode = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.readValue(bytes, type);
+        }
+        long decode = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("%s size=%6d bytes  encode=%7d ns  decode=%7d ns%n", name, bytes.length, encode, decode);
+    }
+
+    private static List<Task> tasks(int count) {
+        List<Priority> priorities = new ArrayList<>();
+        List<Category> categories = new ArrayList<>();
+        for (long i = 1; i <= 5; i++) {
+            Priority priority = new Priority();
+            priority.setId(i);
+            priority.setTitle("Priority " + i);
+            priority.setColor("#ff00" + i + "0");
+            priority.setUserId(1L);
+            priorities.add(priority);
+
+            Category category = new Category();
+            category.setId(i);
+            category.setTitle("Category " + i);
+            category.setCompletedCount(10 * i);
+            category.setUncompletedCount(20 * i);
+            category.setUserId(1L);
+            categories.add(category);
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        for (long i = 1; i <= count; i++) {
+            Task task = new Task();
+            task.setId(i);
+            task.setTitle("Task number " + i + " with a typical title");
+            task.setCompleted(i % 2 == 0);
+            task.setTaskDate(new Date());
+            task.setPriority(priorities.get((int) (i % 5)));
+            task.setCategory(categories.get((int) (i % 5)));
+            task.setUserId(1L);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,147 @@
+package com.dzhatdoev.todo.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузка на запущенный todo (поиск задач и добавление задач) с искусственным замедлением БД:
+ * на этапе "degraded" отдельное соединение периодически блокирует todo.task (lock table ... access exclusive),
+ * запросы к таблице ждут снятия блокировки. Для каждого этапа выводится число успешных ответов и отказов 503,
+ * медиана и 99-й перцентиль задержки успешных ответов - отдельно для чтения и изменений.
+ * Сравнение - запуск с todo.limiter.enabled=true и false.
+ * Это не тест (не запускается в mvn test), запуск вручную:
+ * mvn test-compile exec:java -Dexec.mainClass=com.dzhatdoev.todo.bench.LoadBenchmark -Dexec.classpathScope=test
+ * Параметры (-D): url, jdbc, jdbcUser, jdbcPassword, threads, seconds, userId (существующий пользователь)
+ * Добавленные задачи после запуска можно удалить: delete from todo.task where title like 'load %'
+ */
+public class LoadBenchmark {
+
+    private static final String URL = System.getProperty("url", "http://localhost:8081");
+    private static final String JDBC = System.getProperty("jdbc", "jdbc:postgresql://localhost:5432/postgres");
+    private static final int THREADS = Integer.getInteger("threads", 16);
+    private static final int SECONDS = Integer.getInteger("seconds", 15); // длительность каждого этапа
+    private static final long USER_ID = Long.getLong("userId", 1);
+
+    private static final long LOCK_MILLIS = 300; // блокировка таблицы в каждом цикле замедления
+    private static final long CYCLE_MILLIS = 400;
+
+    private static final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    public static void main(String[] args) throws Exception {
+        phase("warmup", false); // прогрев JIT сервиса
+        phase("baseline", false);
+        phase("degraded", true);
+        phase("recovered", false);
+    }
+
+    private static void phase(String name, boolean degrade) throws Exception {
+        Stats reads = new Stats();
+        Stats writes = new Stats();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        if (degrade) {
+            executor.submit(() -> lockLoop(running));
+        }
+        for (int t = 0; t < THREADS; t++) {
+            boolean write = t % 4 == 0; // каждый четвертый поток только добавляет задачи
+            executor.submit(() -> {
+                long n = 0;
+                while (running.get()) {
+                    if (write) {
+                        call(writes, "/task/add", "{\"userId\":" + USER_ID + ",\"title\":\"load " + (n++) + "\",\"completed\":0}");
+                    } else {
+                        call(reads, "/task/search", "{\"userId\":" + USER_ID + ",\"pageNumber\":0,\"pageSize\":20,\"sortColumn\":\"title\",\"sortDirection\":\"asc\"}");
+                    }
+                }
+                return null;
+            });
+        }
+
+        Thread.sleep(SECONDS * 1000L);
+        running.set(false);
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        System.out.printf("%-10s read:  %s%n", name, reads);
+        System.out.printf("%-10s write: %s%n", name, writes);
+    }
+
+    private static void call(Stats stats, String path, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(URL + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 503) {
+                stats.rejected.incrementAndGet();
+                Thread.sleep(100); // клиент повторяет позже (в реальном клиенте - по Retry-After)
+            } else if (response.statusCode() == 200) {
+                stats.add(System.nanoTime() - start);
+            } else {
+                stats.failed.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            stats.failed.incrementAndGet();
+        }
+    }
+
+    // замедление БД: блокировка таблицы задач на LOCK_MILLIS в каждом цикле CYCLE_MILLIS
+    private static Void lockLoop(AtomicBoolean running) throws Exception {
+        try (Connection connection = DriverManager.getConnection(JDBC,
+                System.getProperty("jdbcUser", "postgres"), System.getProperty("jdbcPassword", ""))) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                while (running.get()) {
+                    statement.execute("lock table todo.task in access exclusive mode");
+                    Thread.sleep(LOCK_MILLIS);
+                    connection.commit();
+                    Thread.sleep(CYCLE_MILLIS - LOCK_MILLIS);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class Stats {
+
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        void add(long nanos) {
+            latencies.add(nanos);
+        }
+
+        @Override
+        public String toString() {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            return String.format("ok %6d, 503 %6d, failed %4d, p50 %7.1f ms, p99 %7.1f ms",
+                    sorted.size(), rejected.get(), failed.get(), percentile(sorted, 0.5), percentile(sorted, 0.99));
+        }
+
+        private static double percentile(List<Long> sorted, double p) {
+            return sorted.isEmpty() ? 0 : sorted.get((int) Math.min(sorted.size() - 1, sorted.size() * p)) / 1_000_000.0;
+        }
+    }
+}
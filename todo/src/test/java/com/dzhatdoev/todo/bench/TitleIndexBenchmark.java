@@ -0,0 +1,50 @@
+package com.dzhatdoev.todo.bench;
+
+import com.dzhatdoev.todo.autocomplete.TitleIndex;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Время поиска подсказки в индексе автодополнения одного пользователя (10 000 задач по 3-6 слов).
+ * Это не тест (не запускается в mvn test), запуск вручную:
+ * mvn test-compile exec:java -Dexec.mainClass=com.dzhatdoev.todo.bench.TitleIndexBenchmark -Dexec.classpathScope=test
+ */
+public class TitleIndexBenchmark {
+
+    private static final String[] WORDS = {"buy", "call", "write", "report", "milk", "meeting", "review", "plan", "fix", "bug",
+            "clean", "garage", "send", "invoice", "book", "flight", "read", "article", "pay", "rent"};
+
+    private static final int TITLES = 10_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        Map<Long, String> titles = new HashMap<>();
+        for (long id = 1; id <= TITLES; id++) {
+            StringBuilder title = new StringBuilder();
+            for (int w = 0, n = 3 + random.nextInt(4); w < n; w++) {
+                title.append(w > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            titles.put(id, title.toString() + " " + id);
+        }
+
+        long start = System.nanoTime();
+        TitleIndex index = TitleIndex.of(titles);
+        System.out.printf("build: %d ms, weight: %d KB%n", (System.nanoTime() - start) / 1_000_000, index.weight() / 1024);
+
+        String[] prefixes = {"b", "re", "mee", "garage", "invoice 9", "zzz"};
+        long found = 0;
+        for (int i = 0; i < ITERATIONS; i++) { // прогрев JIT
+            found += index.find(prefixes[i % prefixes.length], 10).size();
+        }
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            found += index.find(prefixes[i % prefixes.length], 10).size();
+        }
+        System.out.printf("find: %d ns (%d)%n", (System.nanoTime() - start) / ITERATIONS, found);
+    }
+}
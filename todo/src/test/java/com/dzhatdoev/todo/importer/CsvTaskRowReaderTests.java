@@ -0,0 +1,67 @@
+package com.dzhatdoev.todo.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTaskRowReaderTests {
+
+    @Test
+    void readsColumnsByHeaderInAnyOrder() throws IOException {
+        TaskRowReader reader = reader("\uFEFFpriority,Title,task_date,category,completed\r\nHigh,Buy milk,2024-01-31T10:00,Home,1\r\n,Call Bob,,,\r\n");
+
+        TaskImportRow first = reader.next();
+        assertEquals("Buy milk", first.getTitle());
+        assertTrue(first.isCompleted());
+        assertEquals(LocalDateTime.of(2024, 1, 31, 10, 0), first.getTaskDate());
+        assertEquals("Home", first.getCategory());
+        assertEquals("High", first.getPriority());
+
+        TaskImportRow second = reader.next();
+        assertEquals("Call Bob", second.getTitle());
+        assertFalse(second.isCompleted());
+        assertNull(second.getTaskDate());
+        assertNull(second.getCategory());
+        assertNull(second.getPriority());
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsQuotedValuesWithCommasQuotesAndLineBreaks() throws IOException {
+        TaskRowReader reader = reader("title,category\n\"a, \"\"b\"\"\nc\",\"Home, work\"\nlast,\n");
+
+        TaskImportRow quoted = reader.next();
+        assertEquals("a, \"b\"\nc", quoted.getTitle());
+        assertEquals("Home, work", quoted.getCategory());
+
+        TaskImportRow last = reader.next();
+        assertEquals(4, last.getLine()); // значение в кавычках занимало две строки
+        assertNull(reader.next());
+    }
+
+    @Test
+    void invalidRowIsReportedAndReadingContinues() throws IOException {
+        TaskRowReader reader = reader("title,completed,taskDate\n,1,\nbad,maybe,\nbad date,0,2024-02-30\n\nok,no,2024-02-29\n");
+
+        assertEquals(2, assertThrows(TaskRowReader.InvalidRowException.class, reader::next).getLine());
+        assertEquals(3, assertThrows(TaskRowReader.InvalidRowException.class, reader::next).getLine());
+        assertEquals(4, assertThrows(TaskRowReader.InvalidRowException.class, reader::next).getLine());
+        assertEquals("ok", reader.next().getTitle()); // пустая строка пропускается
+        assertNull(reader.next());
+    }
+
+    @Test
+    void headerWithoutTitleIsRejected() {
+        assertThrows(TaskRowReader.InvalidRowException.class, () -> reader("name,completed\nx,1\n"));
+    }
+
+    private static TaskRowReader reader(String csv) throws IOException {
+        return new CsvTaskRowReader(new BufferedReader(new StringReader(csv)));
+    }
+}
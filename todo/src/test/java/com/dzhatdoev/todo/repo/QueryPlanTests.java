@@ -0,0 +1,306 @@
+package com.dzhatdoev.todo.repo;
+
+import com.dzhatdoev.entities.entity.Category;
+import com.dzhatdoev.entities.entity.Priority;
+import com.dzhatdoev.entities.entity.Task;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Планы запросов репозиториев на заполненной БД: каждый запрос, который приложение отправляет в БД при вызове метода,
+ * выполняется еще и как EXPLAIN с теми же параметрами; тест падает, если в плане есть полный просмотр (Seq Scan)
+ * таблицы с LARGE_TABLE_ROWS строк и больше - значит, для запроса нет подходящего индекса.
+ * БД todo_plan_test создается заново на локальном Postgres (-Dplan-test.url, по умолчанию localhost:5432),
+ * схема - миграциями db/migration, данные - db/plan-test. Без Postgres тест пропускается
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "config.snapshot.enabled=false",
+        "todo.warmup.enabled=false",
+        "spring.flyway.locations=classpath:db/migration,classpath:db/plan-test"})
+@EnabledIf("databaseAvailable")
+class QueryPlanTests {
+
+    private static final String SERVER_URL = System.getProperty("plan-test.url", "jdbc:postgresql://localhost:5432/postgres");
+    private static final String USERNAME = System.getProperty("plan-test.username", "postgres");
+    private static final String PASSWORD = System.getProperty("plan-test.password", "");
+    private static final String DATABASE = "todo_plan_test";
+
+    private static final long LARGE_TABLE_ROWS = 5000;
+
+    private static final long USER_ID = 1000;
+
+    // планы запросов, выполненных во время текущей проверки
+    private static final List<QueryPlan> plans = new CopyOnWriteArrayList<>();
+    private static volatile boolean capturing;
+
+    @Autowired
+    private TaskRepository taskRepository;
+    @Autowired
+    private TaskWithArchiveRepository taskWithArchiveRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private PriorityRepository priorityRepository;
+    @Autowired
+    private StatRepository statRepository;
+    @Autowired
+    private TaskTombstoneRepository tombstoneRepository;
+    @Autowired
+    private EntityBatchLoader batchLoader;
+    @Autowired
+    private FullTextSearch fullTextSearch;
+    @Autowired
+    private CounterReconciler counterReconciler;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    static boolean databaseAvailable() {
+        DriverManager.setLoginTimeout(2);
+        try (Connection ignored = DriverManager.getConnection(SERVER_URL, USERNAME, PASSWORD)) {
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(SERVER_URL, USERNAME, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop database if exists " + DATABASE + " with (force)");
+            statement.execute("create database " + DATABASE);
+        }
+        registry.add("spring.datasource.url", () -> SERVER_URL.substring(0, SERVER_URL.lastIndexOf('/') + 1) + DATABASE);
+        registry.add("spring.datasource.username", () -> USERNAME);
+        registry.add("spring.datasource.password", () -> PASSWORD);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> repositoryQueriesUseIndexes() {
+        Long taskId = jdbcTemplate.queryForObject("select min(id) from todo.task where user_id = ?", Long.class, USER_ID);
+        Long categoryId = jdbcTemplate.queryForObject("select min(id) from todo.category where user_id = ?", Long.class, USER_ID);
+        Long priorityId = jdbcTemplate.queryForObject("select min(id) from todo.priority where user_id = ?", Long.class, USER_ID);
+        List<Long> taskIds = jdbcTemplate.queryForList("select id from todo.task where user_id = ? order by id limit 20", Long.class, USER_ID);
+        Date dateFrom = new Date(LocalDateTime.of(2024, 1, 2, 0, 0).atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli());
+        Date dateTo = new Date(dateFrom.getTime() + 3L * 24 * 3600 * 1000);
+        PageRequest page = PageRequest.of(0, 20, Sort.by("title", "id"));
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+
+        queries.put("TaskRepository.findByParams", () -> taskRepository.findByParams(null, false, null, null, USER_ID, null, null, page));
+        queries.put("TaskRepository.findByParams(title)", () -> taskRepository.findByParams("task 1", false, null, null, USER_ID, null, null, page));
+        queries.put("TaskRepository.findByParams(category, completed)", () -> taskRepository.findByParams(null, true, null, categoryId, USER_ID, null, null, page));
+        queries.put("TaskRepository.findByParams(priority)", () -> taskRepository.findByParams(null, false, priorityId, null, USER_ID, null, null, page));
+        queries.put("TaskRepository.findByParams(dates)", () -> taskRepository.findByParams(null, false, null, null, USER_ID, dateFrom, dateTo, page));
+        queries.put("TaskRepository.findFieldsByParams", () -> taskRepository.findFieldsByParams(List.of("id", "title", "category"), false, null, false, null, null, USER_ID, dateFrom, dateTo, page));
+        queries.put("TaskRepository.findFieldsByParams(archived)", () -> taskRepository.findFieldsByParams(List.of("id", "title", "archived"), true, null, false, null, null, USER_ID, null, null, page));
+        queries.put("TaskRepository.countByDays", () -> taskRepository.countByDays(USER_ID, LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0), "UTC", "UTC", "category", true));
+        queries.put("TaskRepository.findVersionById", () -> taskRepository.findVersionById(taskId, USER_ID));
+        queries.put("TaskRepository.findVersionById(id)", () -> taskRepository.findVersionById(taskId));
+        queries.put("TaskRepository.findByIdAndUserId", () -> taskRepository.findByIdAndUserId(taskId, USER_ID));
+        queries.put("TaskRepository.findById", () -> taskRepository.findById(taskId));
+        queries.put("TaskRepository.findByUserIdOrderByTitleAsc", () -> taskRepository.findByUserIdOrderByTitleAsc(USER_ID));
+        queries.put("TaskRepository.findImportedAt", () -> taskRepository.findImportedAt(USER_ID));
+        queries.put("TaskRepository.findTitles", () -> taskRepository.findTitles(USER_ID));
+        queries.put("TaskRepository.findTitles(ids)", () -> taskRepository.findTitles(USER_ID, taskIds));
+        queries.put("TaskRepository.touchByCategoryId", () -> taskRepository.touchByCategoryId(categoryId, USER_ID, new Date()));
+        queries.put("TaskRepository.touchByPriorityId", () -> taskRepository.touchByPriorityId(priorityId, USER_ID, new Date()));
+        queries.put("TaskRepository.archive", () -> taskRepository.archive(dateFrom, 1000));
+        queries.put("TaskRepository.restore", () -> taskRepository.restore(taskId, USER_ID));
+        queries.put("TaskWithArchiveRepository.findByUserIdOrderByTitleAsc", () -> taskWithArchiveRepository.findByUserIdOrderByTitleAsc(USER_ID));
+        queries.put("TaskWithArchiveRepository.findByUserIdAndModifiedAtAfter", () -> taskWithArchiveRepository.findByUserIdAndModifiedAtAfter(USER_ID, dateFrom));
+        queries.put("TaskWithArchiveRepository.findByParams", () -> taskWithArchiveRepository.findByParams(null, false, null, categoryId, USER_ID, null, null, page));
+
+        queries.put("CategoryRepository.findByUserIdOrderByTitleAsc", () -> categoryRepository.findByUserIdOrderByTitleAsc(USER_ID));
+        queries.put("CategoryRepository.findByTitle", () -> categoryRepository.findByTitle("category 1", USER_ID));
+        queries.put("CategoryRepository.findTitles", () -> categoryRepository.findTitles(USER_ID));
+        queries.put("CategoryRepository.findTitles(ids)", () -> categoryRepository.findTitles(USER_ID, List.of(categoryId)));
+        queries.put("CategoryRepository.findVersionById", () -> categoryRepository.findVersionById(categoryId));
+        queries.put("CategoryRepository.delete", () -> categoryRepository.deleteById(categoryId));
+
+        queries.put("PriorityRepository.findByUserIdOrderByIdAsc", () -> priorityRepository.findByUserIdOrderByIdAsc(USER_ID));
+        queries.put("PriorityRepository.findByTitle", () -> priorityRepository.findByTitle("priority 1", USER_ID));
+        queries.put("PriorityRepository.findTitles", () -> priorityRepository.findTitles(USER_ID));
+        queries.put("PriorityRepository.findVersionById", () -> priorityRepository.findVersionById(priorityId));
+        queries.put("PriorityRepository.delete", () -> priorityRepository.deleteById(priorityId));
+
+        queries.put("StatRepository.findByUserId", () -> statRepository.findByUserId(USER_ID));
+
+        queries.put("TaskTombstoneRepository.findDeletedIds", () -> tombstoneRepository.findDeletedIds(USER_ID, dateFrom));
+        queries.put("TaskTombstoneRepository.deleteOlderThan", () -> tombstoneRepository.deleteOlderThan(new Date(System.currentTimeMillis() - 30L * 24 * 3600 * 1000)));
+
+        queries.put("EntityBatchLoader.findAllById(Task)", () -> batchLoader.findAllById(Task.class, taskIds, USER_ID));
+        queries.put("EntityBatchLoader.findAllById(Category)", () -> batchLoader.findAllById(Category.class, List.of(categoryId), USER_ID));
+        queries.put("EntityBatchLoader.findAllById(Priority)", () -> batchLoader.findAllById(Priority.class, List.of(priorityId), USER_ID));
+        queries.put("CounterReconciler.findUserIds", () -> counterReconciler.findUserIds(USER_ID, 100));
+        // порция - малая доля пользователей, как в рабочей БД (здесь всего 2000 пользователей)
+        queries.put("CounterReconciler.reconcile", () -> counterReconciler.reconcile(LongStream.range(USER_ID, USER_ID + 10).boxed().toList(), true, Duration.ofSeconds(1)));
+        queries.put("FullTextSearch.search", () -> fullTextSearch.search(USER_ID, "task 15", FullTextSearch.TYPES, 20));
+
+        Set<String> largeTables = new HashSet<>(jdbcTemplate.queryForList(
+                "select c.relname from pg_class c join pg_namespace n on n.oid = c.relnamespace " +
+                        "where n.nspname in ('todo', 'users') and c.relkind = 'r' and c.reltuples >= ?", String.class, LARGE_TABLE_ROWS));
+
+        return queries.entrySet().stream().map(query -> DynamicTest.dynamicTest(query.getKey(), () -> {
+            List<QueryPlan> captured = explain(query.getValue());
+            assertFalse(captured.isEmpty(), "no SQL executed");
+            for (QueryPlan plan : captured) {
+                Set<String> scanned = plan.seqScans();
+                scanned.retainAll(largeTables);
+                assertTrue(scanned.isEmpty(), "sequential scan of " + scanned + " in\n" + plan.sql + "\n" + plan.plan);
+            }
+        }));
+    }
+
+    // выполнить вызов в транзакции с откатом (изменяющие запросы не меняют данные для следующих проверок)
+    private List<QueryPlan> explain(Runnable call) {
+        plans.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            capturing = true;
+            try {
+                call.run();
+                jdbcTemplate.execute("set constraints all immediate"); // отложенные проверки и flush до отката
+            } finally {
+                capturing = false;
+                status.setRollbackOnly();
+            }
+        });
+        return new ArrayList<>(plans);
+    }
+
+    private record QueryPlan(String sql, String plan) {
+
+        private static final ObjectMapper mapper = new ObjectMapper();
+
+        // таблицы, которые читаются полностью (Seq Scan)
+        Set<String> seqScans() throws Exception {
+            Set<String> result = new HashSet<>();
+            collect(mapper.readTree(plan).get(0).get("Plan"), result);
+            return result;
+        }
+
+        private static void collect(JsonNode node, Set<String> result) {
+            if ("Seq Scan".equals(node.path("Node Type").asText())) {
+                result.add(node.path("Relation Name").asText());
+            }
+            for (JsonNode child : node.path("Plans")) {
+                collect(child, result);
+            }
+        }
+    }
+
+    // DataSource, который перед выполнением каждого PreparedStatement (пока capturing) выполняет EXPLAIN того же запроса
+    @TestConfiguration
+    static class PlanCaptureConfig {
+
+        @Bean
+        static BeanPostProcessor explainingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? proxy(DataSource.class, dataSource, (target, method, args) -> {
+                        Object result = method.invoke(target, args);
+                        return result instanceof Connection connection ? connection(connection) : result;
+                    }) : bean;
+                }
+            };
+        }
+
+        private static Connection connection(Connection connection) {
+            return proxy(Connection.class, connection, (target, method, args) -> {
+                Object result = method.invoke(target, args);
+                if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+                    return statement(connection, (String) args[0], statement);
+                }
+                return result;
+            });
+        }
+
+        private static PreparedStatement statement(Connection connection, String sql, PreparedStatement statement) {
+            List<Object[]> parameters = new ArrayList<>(); // вызовы set*(index, value...) - повторяются для EXPLAIN
+            return proxy(PreparedStatement.class, statement, (target, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    parameters.add(new Object[]{method, args});
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (capturing && args == null && (name.equals("execute") || name.equals("executeQuery") || name.equals("executeUpdate"))) {
+                    plans.add(new QueryPlan(sql, plan(connection, sql, parameters)));
+                }
+                return method.invoke(target, args);
+            });
+        }
+
+        private static String plan(Connection connection, String sql, List<Object[]> parameters) throws Exception {
+            try (PreparedStatement explain = connection.prepareStatement("explain (format json) " + sql)) {
+                for (Object[] call : parameters) {
+                    ((Method) call[0]).invoke(explain, (Object[]) call[1]);
+                }
+                try (ResultSet rs = explain.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+            InvocationHandler invocationHandler = (proxy, method, args) -> {
+                try {
+                    return handler.invoke(target, method, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return (T) Proxy.newProxyInstance(QueryPlanTests.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+        }
+
+        private interface Handler<T> {
+            Object invoke(T target, Method method, Object[] args) throws Exception;
+        }
+    }
+}
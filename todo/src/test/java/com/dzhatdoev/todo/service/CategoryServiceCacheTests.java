@@ -0,0 +1,85 @@
+package com.dzhatdoev.todo.service;
+
+import com.dzhatdoev.entities.entity.Category;
+import com.dzhatdoev.todo.events.TodoEvents;
+import com.dzhatdoev.todo.repo.CategoryRepository;
+import com.dzhatdoev.todo.repo.EntityBatchLoader;
+import com.dzhatdoev.todo.repo.EntityPatcher;
+import com.dzhatdoev.todo.repo.TaskRepository;
+import com.dzhatdoev.todo.version.UserDataVersions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// кеш списков категорий: у пользователей с одинаковой версией (обе 0) - разные записи
+@SpringJUnitConfig(CategoryServiceCacheTests.Config.class)
+class CategoryServiceCacheTests {
+
+    // без @Configuration - иначе класс найдет сканирование компонентов в тестах с полным контекстом
+    @EnableCaching
+    static class Config {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager("categories");
+        }
+
+        @Bean
+        UserDataVersions userDataVersions() {
+            return new UserDataVersions(1000);
+        }
+
+        @Bean
+        CategoryRepository categoryRepository() {
+            return mock(CategoryRepository.class);
+        }
+
+        @Bean
+        CategoryService categoryService(CategoryRepository repository) {
+            return new CategoryService(repository, mock(TaskRepository.class), mock(TodoEvents.class), mock(EntityPatcher.class),
+                    mock(EntityBatchLoader.class));
+        }
+    }
+
+    @Autowired
+    private CategoryService service;
+
+    @Autowired
+    private CategoryRepository repository;
+
+    @Autowired
+    private UserDataVersions versions;
+
+    @Test
+    void usersWithEqualVersionsGetTheirOwnLists() {
+        Category first = category("first");
+        Category second = category("second");
+        when(repository.findByUserIdOrderByTitleAsc(1L)).thenReturn(List.of(first));
+        when(repository.findByUserIdOrderByTitleAsc(2L)).thenReturn(List.of(second));
+
+        assertNotEquals(versions.etag(1L, UserDataVersions.Collection.CATEGORIES), versions.etag(2L, UserDataVersions.Collection.CATEGORIES));
+        assertEquals(List.of(first), service.findAll(1L));
+        assertEquals(List.of(second), service.findAll(2L));
+        assertEquals(List.of(first), service.findAll(1L)); // из кеша
+        verify(repository, times(1)).findByUserIdOrderByTitleAsc(1L);
+
+        versions.bump(1L, UserDataVersions.Collection.CATEGORIES);
+        service.findAll(1L);
+        verify(repository, times(2)).findByUserIdOrderByTitleAsc(1L);
+    }
+
+    private static Category category(String title) {
+        Category category = new Category();
+        category.setTitle(title);
+        return category;
+    }
+}
@@ -0,0 +1,30 @@
+package com.dzhatdoev.todo.version;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// вытесненный счетчик начинается с 0, но старый ETag с ним уже не совпадает
+class UserDataVersionsTests {
+
+    private final UserDataVersions versions = new UserDataVersions(1);
+
+    @Test
+    void evictedVersionDoesNotMatchOldEtag() throws InterruptedException {
+        String initial = versions.etag(1L, UserDataVersions.Collection.CATEGORIES);
+        versions.bump(1L, UserDataVersions.Collection.CATEGORIES);
+        String changed = versions.etag(1L, UserDataVersions.Collection.CATEGORIES);
+        assertNotEquals(initial, changed);
+
+        // счетчик другого пользователя вытесняет счетчик первого (вытеснение в Caffeine - асинхронное)
+        versions.bump(2L, UserDataVersions.Collection.CATEGORIES);
+        for (int i = 0; i < 500 && changed.equals(versions.etag(1L, UserDataVersions.Collection.CATEGORIES)); i++) {
+            versions.bump(2L, UserDataVersions.Collection.CATEGORIES);
+            Thread.sleep(10);
+        }
+
+        String afterEviction = versions.etag(1L, UserDataVersions.Collection.CATEGORIES);
+        assertNotEquals(changed, afterEviction);
+        assertNotEquals(initial, afterEviction); // без epoch здесь снова была бы версия 0 - ложный 304
+    }
+}
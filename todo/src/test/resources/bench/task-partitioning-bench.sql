@@ -0,0 +1,98 @@
+-- Сравнение обычной и секционированной по user_id таблицы задач (см. db/task-partitioning.sql) на 10 млн строк.
+-- Не выполняется в mvn test, запуск вручную на пустой БД (создает и удаляет схему bench):
+-- psql -f task-partitioning-bench.sql
+-- Результат - планы (EXPLAIN ANALYZE) типичных запросов TaskRepository для обеих таблиц.
+
+drop schema if exists bench cascade;
+create schema bench;
+
+-- 100 000 пользователей по 100 задач
+create table bench.task_plain
+(
+    id          bigint primary key,
+    title       text      not null,
+    completed   smallint  not null,
+    task_date   timestamp,
+    priority_id bigint,
+    category_id bigint,
+    user_id     bigint    not null,
+    modified_at timestamp not null,
+    version     bigint    not null
+);
+
+insert into bench.task_plain
+select i,
+       'task ' || md5(i::text),
+       (i % 2)::smallint,
+       timestamp '2024-01-01' + (i % 1000) * interval '1 day',
+       i % 50,
+       i % 20,
+       i % 100000,
+       timestamp '2024-01-01' + (i % 1000) * interval '1 hour',
+       0
+from generate_series(1, 10000000) i;
+
+create index on bench.task_plain (user_id);
+create index on bench.task_plain (title);
+create index on bench.task_plain (user_id, modified_at);
+
+create table bench.task_part
+(
+    like bench.task_plain
+) partition by hash (user_id);
+
+alter table bench.task_part add primary key (id, user_id);
+
+do
+$$
+    begin
+        for i in 0..15
+            loop
+                execute format('create table bench.task_part_%s partition of bench.task_part for values with (modulus 16, remainder %s)', i, i);
+            end loop;
+    end
+$$;
+
+insert into bench.task_part select * from bench.task_plain;
+
+create index on bench.task_part (user_id, title);
+create index on bench.task_part (user_id, task_date);
+create index on bench.task_part (user_id, modified_at);
+
+vacuum analyze bench.task_plain;
+vacuum analyze bench.task_part;
+
+-- TaskRepository.findByParams (первая страница, сортировка по title)
+explain (analyze, buffers, costs off)
+select * from bench.task_plain where user_id = 4242 and completed = 0 order by title limit 10;
+explain (analyze, buffers, costs off)
+select * from bench.task_part where user_id = 4242 and completed = 0 order by title limit 10;
+
+-- count для страницы
+explain (analyze, buffers, costs off)
+select count(*) from bench.task_plain where user_id = 4242 and lower(title) like '%a%';
+explain (analyze, buffers, costs off)
+select count(*) from bench.task_part where user_id = 4242 and lower(title) like '%a%';
+
+-- findByUserIdAndModifiedAtAfter (/task/changes)
+explain (analyze, buffers, costs off)
+select * from bench.task_plain where user_id = 4242 and modified_at > timestamp '2024-01-20';
+explain (analyze, buffers, costs off)
+select * from bench.task_part where user_id = 4242 and modified_at > timestamp '2024-01-20';
+
+-- изменение задачи (update ... where id = ? and user_id = ? and version = ?)
+explain (analyze, buffers, costs off)
+update bench.task_plain set title = 'x', version = version + 1 where id = 4242 and user_id = 4242 and version = 0;
+explain (analyze, buffers, costs off)
+update bench.task_part set title = 'x', version = version + 1 where id = 4242 and user_id = 4242 and version = 0;
+
+-- поиск только по id (старый /task/id) - в секционированной таблице просматриваются все секции
+explain (analyze, buffers, costs off)
+select * from bench.task_part where id = 4242;
+
+-- размер индексов одного пользователя: вся таблица против одной секции
+select 'plain' as name, pg_size_pretty(pg_indexes_size('bench.task_plain')) as indexes
+union all
+select 'one partition', pg_size_pretty(pg_indexes_size('bench.task_part_0'));
+
+drop schema bench cascade;
@@ -0,0 +1,48 @@
+-- данные для QueryPlanTests (только в тестовой БД todo_plan_test): объем, при котором полный просмотр таблицы
+-- заметно дороже индекса - планировщик выбирает индекс, если подходящий есть.
+-- 2000 пользователей; у каждого 20 категорий, 10 приоритетов, 200 задач (400 000 - ~25 000 в каждой секции),
+-- 25 задач в архиве и 10 отметок об удалении
+
+-- без триггеров счетчиков и проверок внешних ключей (только на время заполнения)
+set session_replication_role = replica;
+
+insert into users.user_data (email, username, userpassword)
+select 'user' || u || '@test', 'user' || u, 'x'
+from generate_series(1, 2000) u;
+
+insert into todo.stat (user_id)
+select id from users.user_data;
+
+insert into todo.category (title, user_id)
+select 'category ' || c, u.id
+from users.user_data u, generate_series(1, 20) c;
+
+insert into todo.priority (title, color, user_id)
+select 'priority ' || p, '#fff', u.id
+from users.user_data u, generate_series(1, 10) p;
+
+-- category_id/priority_id - одна из категорий/приоритетов того же пользователя (id выдаются подряд), у части задач пусто
+insert into todo.task (title, completed, task_date, priority_id, category_id, user_id, modified_at)
+select 'task ' || t || ' of ' || u,
+       (t % 3 = 0)::int,
+       timestamp '2024-01-01' + (t || ' hours')::interval,
+       case when t % 4 = 0 then null else (u - 1) * 10 + 1 + t % 10 end,
+       case when t % 5 = 0 then null else (u - 1) * 20 + 1 + t % 20 end,
+       u,
+       timestamp '2024-01-01' + (t || ' minutes')::interval
+from generate_series(1, 2000) u, generate_series(1, 200) t;
+
+insert into todo.task_archive (id, title, completed, task_date, priority_id, category_id, user_id, modified_at, version)
+select 1000000 + (u - 1) * 25 + t, 'archived task ' || t || ' of ' || u, 1,
+       timestamp '2023-01-01' + (t || ' days')::interval,
+       (u - 1) * 10 + 1 + t % 10, (u - 1) * 20 + 1 + t % 20, u,
+       timestamp '2023-01-01' + (t || ' days')::interval, 0
+from generate_series(1, 2000) u, generate_series(1, 25) t;
+
+insert into todo.task_tombstone (task_id, user_id, deleted_at)
+select 2000000 + (u - 1) * 10 + t, u, now() - (t || ' days')::interval
+from generate_series(1, 2000) u, generate_series(1, 10) t;
+
+set session_replication_role = origin;
+
+analyze;
@@ -0,0 +1,44 @@
+package com.dzhatdoev.utils.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Подключается автоматически во все сервисы, у которых в зависимостях есть utils.
+ * Сам снимок подключается в application.properties сервиса:
+ * spring.config.import=optional:file:${config.snapshot.dir:./config-snapshot}/${spring.application.name}.properties,optional:configserver:...
+ */
+@AutoConfiguration
+@ConditionalOnClass(ContextRefresher.class)
+@ConditionalOnProperty(name = "config.snapshot.enabled", matchIfMissing = true)
+public class ConfigSnapshotAutoConfiguration {
+
+    @Bean
+    public ConfigSnapshotReconciler configSnapshotReconciler(Environment environment, ObjectProvider<ContextRefresher> refresher) {
+        String application = environment.getRequiredProperty("spring.application.name");
+        String dir = environment.getProperty("config.snapshot.dir", "./config-snapshot");
+        String server = environment.getProperty("config.snapshot.server-uri", "http://localhost:8888");
+        String label = environment.getProperty("spring.cloud.config.label");
+
+        String[] active = environment.getActiveProfiles();
+        String profiles = active.length == 0 ? "default" : String.join(",", active);
+
+        URI uri = URI.create(server + "/" + application + "/" + profiles + (label == null ? "" : "/" + label));
+
+        return new ConfigSnapshotReconciler(
+                new ConfigSnapshotFile(Path.of(dir, application + ".properties")),
+                refresher.getIfAvailable(), // может отсутствовать (spring.cloud.refresh.enabled=false, например в AOT режиме)
+                uri,
+                environment.getProperty("spring.cloud.config.request-connect-timeout", Duration.class, Duration.ofSeconds(1)),
+                environment.getProperty("config.snapshot.refresh-interval", Duration.class, Duration.ofSeconds(60)));
+    }
+}
@@ -0,0 +1,64 @@
+package com.dzhatdoev.utils.config;
+
+import lombok.extern.java.Log;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Файл с последней успешно полученной из config server конфигурацией (обычный .properties).
+ * Подключается в spring.config.import перед configserver, поэтому сервис может стартовать из него,
+ * даже если config server недоступен
+ */
+@Log
+public class ConfigSnapshotFile {
+
+    private final Path file;
+
+    public ConfigSnapshotFile(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // пустая map, если снимка еще нет
+    public Map<String, String> read() {
+        Map<String, String> result = new TreeMap<>();
+        if (!Files.exists(file)) {
+            return result;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            properties.forEach((key, value) -> result.put(String.valueOf(key), String.valueOf(value)));
+        } catch (IOException e) {
+            log.warning("Cannot read config snapshot " + file + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    public void write(Map<String, String> values) throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(values);
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+
+        // пишем во временный файл и переименовываем, чтобы сервис никогда не прочитал недописанный снимок
+        Path tmp = Files.createTempFile(dir, "snapshot", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "last configuration received from config server");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,134 @@
+package com.dzhatdoev.utils.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновая сверка с config server.
+ * После старта (из снимка или из config server) периодически делает условный запрос (If-None-Match):
+ * - 304 - ничего не поменялось, тело не передается
+ * - 200 - сохраняем новый снимок на диск и, если настройки отличаются от действующих, применяем их через ContextRefresher
+ */
+@Log
+public class ConfigSnapshotReconciler implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    // такой property source добавляет config client, если настройки действительно получены из config server
+    private static final String CONFIG_CLIENT_SOURCE = "configClient";
+
+    private final ConfigSnapshotFile snapshot;
+    private final ContextRefresher refresher;
+    private final URI environmentUri; // {server}/{application}/{profiles}[/{label}]
+    private final Duration interval;
+
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler;
+
+    private String etag; // ETag последнего полученного ответа
+    private Map<String, String> applied; // настройки, с которыми сейчас работает сервис
+
+    public ConfigSnapshotReconciler(ConfigSnapshotFile snapshot, ContextRefresher refresher, URI environmentUri,
+                                    Duration connectTimeout, Duration interval) {
+        this.snapshot = snapshot;
+        this.refresher = refresher;
+        this.environmentUri = environmentUri;
+        this.interval = interval;
+        this.http = HttpClient.newBuilder().connectTimeout(connectTimeout).build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "config-snapshot-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableEnvironment environment = event.getApplicationContext().getEnvironment();
+        boolean fromServer = environment.getPropertySources().contains(CONFIG_CLIENT_SOURCE);
+
+        // если старт прошел на снимке - считаем действующими настройки из снимка (их и будем сравнивать с сервером)
+        // если на данных config server - снимок будет перезаписан первой же сверкой, но refresh не понадобится
+        applied = fromServer ? null : snapshot.read();
+        log.info("Started with configuration from " + (fromServer ? "config server" : "local snapshot " + snapshot.getFile()));
+
+        scheduler.scheduleWithFixedDelay(this::reconcile, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void reconcile() {
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(environmentUri)
+                    .timeout(interval)
+                    .header("Accept", "application/json")
+                    .GET();
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+
+            HttpResponse<byte[]> response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == 304) {
+                return; // настройки не поменялись
+            }
+            if (response.statusCode() != 200) {
+                log.warning("Config server answered " + response.statusCode() + ", keeping current configuration");
+                return;
+            }
+
+            Map<String, String> fresh = flatten(mapper.readTree(response.body()));
+            if (!fresh.equals(snapshot.read())) {
+                snapshot.write(fresh);
+            }
+            etag = response.headers().firstValue("ETag").orElse(null);
+
+            if (applied == null) {
+                applied = fresh; // старт был на данных config server - они и так актуальны
+            } else if (!fresh.equals(applied)) {
+                if (refresher == null) {
+                    log.info("Configuration changed on config server, it will be applied after restart");
+                } else {
+                    log.info("Configuration changed on config server, refreshing context");
+                    refresher.refresh(); // повторно выполнит spring.config.import и обновит @RefreshScope бины
+                }
+                applied = fresh;
+            }
+        } catch (Exception e) {
+            log.warning("Config server is unavailable, keeping current configuration: " + e);
+        }
+    }
+
+    // в ответе config server property sources идут по убыванию приоритета - первое значение ключа побеждает
+    static Map<String, String> flatten(JsonNode environment) {
+        Map<String, String> result = new TreeMap<>();
+        for (JsonNode propertySource : environment.path("propertySources")) {
+            Iterator<Map.Entry<String, JsonNode>> fields = propertySource.path("source").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue().has("value") ? field.getValue().get("value") : field.getValue(); // includeOrigin
+                result.putIfAbsent(field.getKey(), value.asText());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
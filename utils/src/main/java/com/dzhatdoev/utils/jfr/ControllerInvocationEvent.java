@@ -0,0 +1,30 @@
+package com.dzhatdoev.utils.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.dzhatdoev.ControllerInvocation")
+@Label("Controller Invocation")
+@Category({"Todo", "Web"})
+@Description("Вызов метода контроллера")
+@StackTrace(false)
+// события пишутся, только пока идет запись JFR (/actuator/jfr), иначе не создаются
+public class ControllerInvocationEvent extends Event {
+
+    @Label("Endpoint")
+    public String endpoint; // метод и URI запроса
+
+    @Label("Method")
+    public String method; // класс.метод контроллера
+
+    @Label("User Id")
+    public long userId; // 0 - не определен
+
+    @Label("Rows")
+    public int rows; // размер списка/страницы в ответе, -1 - не список
+
+}
@@ -0,0 +1,25 @@
+package com.dzhatdoev.utils.jfr;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Подключается автоматически во все сервисы с actuator, у которых в зависимостях есть utils.
+ * Доступ к /actuator/jfr - как к остальным endpoint: management.endpoints.web.exposure.include.
+ * Запись и файлы .jfr - данные о работе сервиса, поэтому в сервисах actuator доступен только на management.server.port с localhost
+ */
+@AutoConfiguration
+@ConditionalOnClass(Endpoint.class)
+public class FlightRecorderAutoConfiguration {
+
+    @Bean
+    public FlightRecorderEndpoint flightRecorderEndpoint(Environment environment) {
+        // максимальный размер записи на диске, при превышении удаляются самые старые данные
+        DataSize maxSize = environment.getProperty("jfr.max-size", DataSize.class, DataSize.ofMegabytes(200));
+        return new FlightRecorderEndpoint(maxSize.toBytes(), environment.getProperty("jfr.max-recordings", Integer.class, 2));
+    }
+}
@@ -0,0 +1,143 @@
+package com.dzhatdoev.utils.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Запись Java Flight Recorder в работающем сервисе - без перезапуска и подключения внешних инструментов:
+ * POST   /actuator/jfr {"settings": "profile", "duration": 300} - начать запись (settings: default - по умолчанию, или profile;
+ *                                                                 duration в секундах - остановить автоматически)
+ * GET    /actuator/jfr          - записи и их состояние
+ * GET    /actuator/jfr/{id}     - файл .jfr с тем, что записано на данный момент (открывается в JDK Mission Control)
+ * DELETE /actuator/jfr/{id}     - остановить и удалить запись
+ * Кроме событий JVM, в запись попадают события сервисов (ControllerInvocationEvent, ServiceCallEvent, RepositoryQueryEvent).
+ * Переменные окружения, системные свойства и аргументы запуска (в них пароли БД) в запись не попадают.
+ * Одновременно хранится не больше maxRecordings записей - каждая занимает на диске до maxSize
+ */
+@Endpoint(id = "jfr")
+public class FlightRecorderEndpoint {
+
+    private static final String NAME = "actuator";
+
+    // события с окружением процесса: переменные окружения, системные свойства, аргументы JVM и приложения
+    private static final List<String> SECRET_EVENTS = List.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+
+    private final long maxSize;
+    private final int maxRecordings;
+
+    public FlightRecorderEndpoint(long maxSize, int maxRecordings) {
+        this.maxSize = maxSize;
+        this.maxRecordings = maxRecordings;
+    }
+
+    @ReadOperation
+    public List<RecordingInfo> recordings() {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream().map(RecordingInfo::new).toList();
+    }
+
+    // synchronized - проверка числа записей и начало новой не должны чередоваться с другим запросом
+    @WriteOperation
+    public synchronized WebEndpointResponse<Object> start(@Nullable String settings, @Nullable Long duration) throws IOException {
+        if (!FlightRecorder.isAvailable()) {
+            return new WebEndpointResponse<>("JFR is not available", WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings == null ? "default" : settings);
+        } catch (ParseException | IOException e) {
+            return new WebEndpointResponse<>("unknown settings: " + settings, WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+
+        // остановленные, но не удаленные записи тоже занимают диск
+        long recordings = FlightRecorder.getFlightRecorder().getRecordings().stream().filter(r -> NAME.equals(r.getName())).count();
+        if (recordings >= maxRecordings) {
+            return new WebEndpointResponse<>("too many recordings: " + recordings + ", delete one first", WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName(NAME);
+        SECRET_EVENTS.forEach(recording::disable);
+        recording.setMaxSize(maxSize); // при превышении удаляются самые старые данные
+        recording.setToDisk(true);
+        if (duration != null) {
+            recording.setDuration(Duration.ofSeconds(duration));
+        }
+        recording.start();
+        return new WebEndpointResponse<>(new RecordingInfo(recording));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump(@Selector long id) throws IOException {
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path file = Files.createTempFile("recording-" + id + "-", ".jfr");
+        recording.dump(file);
+        return new WebEndpointResponse<>(new TemporaryFileResource(file));
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Void> stop(@Selector long id) {
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        recording.close(); // останавливает запись и освобождает ее файлы на диске
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+
+    // только записи, начатые через endpoint (не -XX:StartFlightRecording и не записи других инструментов)
+    private static Recording find(long id) {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream().filter(r -> r.getId() == id && NAME.equals(r.getName())).findFirst().orElse(null);
+    }
+
+    public record RecordingInfo(long id, String name, String state, String start, long durationSeconds, long size) {
+
+        RecordingInfo(Recording recording) {
+            this(recording.getId(), recording.getName(), recording.getState().name(),
+                    recording.getStartTime() == null ? null : recording.getStartTime().toString(),
+                    recording.getDuration() == null ? 0 : recording.getDuration().toSeconds(),
+                    recording.getSize());
+        }
+    }
+
+    // файл удаляется после отправки ответа
+    private static class TemporaryFileResource extends FileSystemResource {
+
+        TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    Files.deleteIfExists(getFile().toPath());
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.dzhatdoev.utils.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.dzhatdoev.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Todo", "Database"})
+@Description("Запрос к БД через репозиторий")
+@StackTrace(false)
+public class RepositoryQueryEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("User Id")
+    public long userId;
+
+    @Label("Rows")
+    public int rows; // найдено строк или изменено (для update/delete), -1 - неизвестно
+
+}
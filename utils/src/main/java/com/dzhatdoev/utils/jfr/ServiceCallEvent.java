@@ -0,0 +1,29 @@
+package com.dzhatdoev.utils.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.dzhatdoev.ServiceCall")
+@Label("Service Call")
+@Category({"Todo", "Service"})
+@Description("Вызов метода сервиса (транзакция, если метод или класс @Transactional)")
+@StackTrace(false)
+public class ServiceCallEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Transactional")
+    public boolean transactional;
+
+    @Label("User Id")
+    public long userId;
+
+    @Label("Rows")
+    public int rows;
+
+}
@@ -0,0 +1,28 @@
+package com.dzhatdoev.utils.trace;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+// завершенный участок обработки запроса (span): id трассировки общий для всех сервисов, через которые прошел запрос
+public class Span {
+
+    private String traceId;
+    private String spanId;
+    private String parentId; // null - начало трассировки
+
+    private String service; // spring.application.name
+    private String name;
+
+    private long start; // epoch, мс
+    private long durationMicros;
+
+    private Map<String, String> tags;
+    private String error;
+
+}
@@ -0,0 +1,53 @@
+package com.dzhatdoev.utils.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Последние завершенные span сервиса в кольцевом буфере фиксированного размера:
+ * запись без блокировок, новые span замещают самые старые - память не растет при любой нагрузке.
+ * Внешняя система трассировки не нужна, просмотр - /actuator/traces
+ */
+public class SpanStore {
+
+    private final AtomicReferenceArray<Span> spans;
+    private final AtomicLong next = new AtomicLong();
+
+    public SpanStore(int capacity) {
+        this.spans = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(Span span) {
+        spans.set((int) (next.getAndIncrement() % spans.length()), span);
+    }
+
+    // все span трассировки, по времени начала
+    public List<Span> findByTraceId(String traceId) {
+        List<Span> result = new ArrayList<>();
+        for (int i = 0; i < spans.length(); i++) {
+            Span span = spans.get(i);
+            if (span != null && span.getTraceId().equals(traceId)) {
+                result.add(span);
+            }
+        }
+        result.sort(Comparator.comparingLong(Span::getStart));
+        return result;
+    }
+
+    // span, с которых начиналась обработка запроса в этом сервисе (родитель - в другом сервисе или его нет),
+    // не короче minMillis, самые новые первыми
+    public List<Span> findRoots(long minMillis, int limit) {
+        List<Span> result = new ArrayList<>();
+        for (int i = 0; i < spans.length(); i++) {
+            Span span = spans.get(i);
+            if (span != null && span.getTags() != null && span.getTags().containsKey(Tracer.ROOT_TAG) && span.getDurationMicros() >= minMillis * 1000) {
+                result.add(span);
+            }
+        }
+        result.sort(Comparator.comparingLong(Span::getStart).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+}
@@ -0,0 +1,39 @@
+package com.dzhatdoev.utils.trace;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Подключается автоматически во все сервисы, у которых в зависимостях есть utils.
+ * Span создают сами сервисы: gateway - фильтром маршрутов, todo - фильтром запросов и аспектом (Tracer)
+ */
+@AutoConfiguration
+@ConditionalOnProperty(name = "trace.enabled", matchIfMissing = true)
+public class TraceAutoConfiguration {
+
+    @Bean
+    public SpanStore spanStore(Environment environment) {
+        return new SpanStore(environment.getProperty("trace.buffer-size", Integer.class, 10_000));
+    }
+
+    @Bean
+    public Tracer tracer(SpanStore store, Environment environment) {
+        return new Tracer(store, environment.getProperty("spring.application.name", "application"));
+    }
+
+    // actuator в зависимостях utils необязательный
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    static class TraceEndpointConfiguration {
+
+        @Bean
+        public TraceEndpoint traceEndpoint(SpanStore store) {
+            return new TraceEndpoint(store);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.dzhatdoev.utils.trace;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Идентификаторы трассировки и текущего span для передачи в следующий сервис.
+ * Формат заголовка - W3C Trace Context: traceparent: 00-{traceId, 32 hex}-{spanId, 16 hex}-01
+ */
+@Getter
+@AllArgsConstructor
+public class TraceContext {
+
+    public static final String HEADER = "traceparent";
+    public static final String TRACE_ID_HEADER = "X-Trace-Id"; // в ответе - для поиска трассировки в /actuator/traces
+
+    private final String traceId;
+    private final String spanId;
+
+    // null - заголовка нет или он в неизвестном формате (начинается новая трассировка)
+    public static TraceContext parse(String header) {
+        if (header == null || header.length() != 55 || !header.startsWith("00-") || header.charAt(35) != '-' || header.charAt(52) != '-') {
+            return null;
+        }
+        String traceId = header.substring(3, 35);
+        String spanId = header.substring(36, 52);
+        if (!isHex(traceId) || !isHex(spanId)) {
+            return null;
+        }
+        return new TraceContext(traceId, spanId);
+    }
+
+    public String toHeader() {
+        return "00-" + traceId + "-" + spanId + "-01";
+    }
+
+    public static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return hex(random.nextLong()) + hex(random.nextLong());
+    }
+
+    public static String newSpanId() {
+        return hex(ThreadLocalRandom.current().nextLong());
+    }
+
+    private static String hex(long value) {
+        String hex = Long.toHexString(value);
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
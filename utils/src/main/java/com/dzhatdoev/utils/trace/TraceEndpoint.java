@@ -0,0 +1,35 @@
+package com.dzhatdoev.utils.trace;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * /actuator/traces?minMillis=100&limit=20 - последние запросы (корневые span этого сервиса), не короче minMillis
+ * /actuator/traces/{traceId} - все span трассировки, сохраненные в этом сервисе
+ * (id трассировки - в заголовке ответа X-Trace-Id; gateway и todo хранят свои span, для полной картины - запрос к обоим)
+ */
+@Endpoint(id = "traces")
+public class TraceEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final SpanStore store;
+
+    public TraceEndpoint(SpanStore store) {
+        this.store = store;
+    }
+
+    @ReadOperation
+    public List<Span> roots(@Nullable Long minMillis, @Nullable Integer limit) {
+        return store.findRoots(minMillis == null ? 0 : minMillis, limit == null ? DEFAULT_LIMIT : limit);
+    }
+
+    @ReadOperation
+    public List<Span> trace(@Selector String traceId) {
+        return store.findByTraceId(traceId);
+    }
+}
@@ -0,0 +1,96 @@
+package com.dzhatdoev.utils.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Span для блокирующего кода (servlet): текущий span хранится в ThreadLocal, вложенные вызовы становятся его потомками.
+ * Вне запроса (задачи по расписанию, фоновые потоки) span не создаются - буфер заполняется только трассировками запросов
+ */
+public class Tracer {
+
+    public static final String ROOT_TAG = "root";
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private final SpanStore store;
+    private final String service;
+
+    public Tracer(SpanStore store, String service) {
+        this.store = store;
+        this.service = service;
+    }
+
+    // начало обработки запроса; parent - контекст из заголовка traceparent (null - новая трассировка)
+    public Scope startRoot(String name, TraceContext parent) {
+        String traceId = parent == null ? TraceContext.newTraceId() : parent.getTraceId();
+        Scope scope = new Scope(traceId, parent == null ? null : parent.getSpanId(), name);
+        scope.tag(ROOT_TAG, "true");
+        return scope;
+    }
+
+    // вложенный span текущего запроса или null, если трассировка не начата
+    public Scope startChild(String name) {
+        Scope current = CURRENT.get();
+        return current == null ? null : new Scope(current.context.getTraceId(), current.context.getSpanId(), name);
+    }
+
+    // продолжение трассировки в другом потоке (пул): span - потомок parent, вызовы в этом потоке - потомки span;
+    // null, если parent == null (запрос не трассируется)
+    public Scope startChild(String name, TraceContext parent) {
+        return parent == null ? null : new Scope(parent.getTraceId(), parent.getSpanId(), name);
+    }
+
+    public TraceContext current() {
+        Scope current = CURRENT.get();
+        return current == null ? null : current.context;
+    }
+
+    public class Scope implements AutoCloseable {
+
+        private final TraceContext context;
+        private final String parentId;
+        private final String name;
+        private final Scope previous;
+
+        private final long start = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private Map<String, String> tags;
+        private String error;
+
+        private Scope(String traceId, String parentId, String name) {
+            this.context = new TraceContext(traceId, TraceContext.newSpanId());
+            this.parentId = parentId;
+            this.name = name;
+            this.previous = CURRENT.get();
+            CURRENT.set(this);
+        }
+
+        public TraceContext getContext() {
+            return context;
+        }
+
+        public Scope tag(String key, String value) {
+            if (tags == null) {
+                tags = new LinkedHashMap<>();
+            }
+            tags.put(key, value);
+            return this;
+        }
+
+        public void error(Throwable e) {
+            error = e.getClass().getSimpleName() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+        }
+
+        @Override
+        public void close() {
+            long duration = (System.nanoTime() - startNanos) / 1000;
+            store.add(new Span(context.getTraceId(), context.getSpanId(), parentId, service, name, start, duration, tags, error));
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}